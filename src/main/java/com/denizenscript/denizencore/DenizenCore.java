@@ -17,9 +17,17 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * The entry point of the core Denizen engine.
+ *
+ * Threading model:
+ * - Script loading, queue execution, event firing and all calls into this class other than 'schedule' happen on the main thread (MAIN_THREAD).
+ * - Registries (tag handlers, object types, script container types, script containers) are filled on the main thread during load,
+ *   and are held in concurrent maps so that they are safely published to, and may be read from, any thread.
+ * - Per-execution state (the current command queue, whether a tag is being filled) is held per-thread, so tags may be read from async threads.
+ * - Anything else shared (queues, flags, definitions) belongs to the main thread, and async code must hand results back via 'schedule'.
  */
 public class DenizenCore {
 
@@ -133,13 +141,41 @@ public class DenizenCore {
         Debug.log("Scripts reloaded.");
     }
 
+    /**
+     * All active schedulables. Only ever accessed from the main thread.
+     */
     public static final List<Schedulable> scheduled = new ArrayList<>();
 
+    /**
+     * Schedulables submitted from other threads, waiting to be moved into 'scheduled' at the start of the next tick.
+     * Lock-free, so async threads never block on the main thread (or vice versa).
+     */
+    public static final ConcurrentLinkedQueue<Schedulable> scheduledInbox = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The maximum number of schedulables to take from the inbox per tick, or 0 for no limit.
+     * Anything left over will be taken on the following tick(s).
+     */
+    public static int maxInboxDrainPerTick = 0;
+
     /**
      * Schedule an item to be run automatically after a given period of time, optionally repeating.
+     * Safe to call from any thread.
      */
     public static void schedule(Schedulable sched) {
-        synchronized (scheduled) {
+        if (Thread.currentThread() == MAIN_THREAD) {
+            scheduled.add(sched);
+        }
+        else {
+            scheduledInbox.add(sched);
+        }
+    }
+
+    static void drainScheduledInbox() {
+        int limit = maxInboxDrainPerTick;
+        int count = 0;
+        Schedulable sched;
+        while ((limit <= 0 || count++ < limit) && (sched = scheduledInbox.poll()) != null) {
             scheduled.add(sched);
         }
     }
@@ -147,6 +183,7 @@ public class DenizenCore {
     static void oncePerSecond() {
         SystemTimeScriptEvent.instance.checkTime();
         DeltaTimeScriptEvent.instance.checkTime();
+        ScriptEvent.checkPathStatsDump();
     }
 
     static int tMS = 0;
@@ -161,6 +198,10 @@ public class DenizenCore {
     public static void tick(int ms_elapsed) {
         serverTimeMillis += ms_elapsed;
         currentTimeMillis = System.currentTimeMillis();
+        scriptEngine.startTick();
+        drainScheduledInbox();
+        ScriptEvent.runDeferredAfterEvents();
+        logInterceptor.dispatchBufferedLines();
         TickScriptEvent.instance.ticks++;
         if (TickScriptEvent.instance.enabled) {
             TickScriptEvent.instance.fire();
@@ -171,12 +212,12 @@ public class DenizenCore {
             tMS -= 1000;
             oncePerSecond();
         }
-        synchronized (scheduled) {
-            for (int i = 0; i < scheduled.size(); i++) {
-                if (!scheduled.get(i).tick((float) ms_elapsed / 1000)) {
-                    scheduled.remove(i--);
-                }
+        for (int i = 0; i < scheduled.size(); i++) {
+            if (!scheduled.get(i).tick((float) ms_elapsed / 1000)) {
+                scheduled.remove(i--);
             }
         }
+        ScriptEvent.runCoalescedPaths();
+        scriptEngine.endTick();
     }
 }
@@ -1,5 +1,6 @@
 package com.denizenscript.denizencore.events;
 
+import com.denizenscript.denizencore.DenizenCore;
 import com.denizenscript.denizencore.scripts.queues.ContextSource;
 import com.denizenscript.denizencore.objects.ArgumentHelper;
 import com.denizenscript.denizencore.objects.ObjectTag;
@@ -8,6 +9,7 @@ import com.denizenscript.denizencore.scripts.ScriptEntryData;
 import com.denizenscript.denizencore.scripts.containers.core.WorldScriptContainer;
 import com.denizenscript.denizencore.scripts.queues.ScriptQueue;
 import com.denizenscript.denizencore.scripts.queues.core.InstantQueue;
+import com.denizenscript.denizencore.utilities.CoreUtilities;
 import com.denizenscript.denizencore.utilities.YamlConfiguration;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.utilities.text.StringHolder;
@@ -26,11 +28,69 @@ public class OldEventManager {
     // Map for keeping the names of events
     public static Map<String, List<WorldScriptContainer>> events = new HashMap<>();
 
+    public static class IndexedEvent {
+
+        public List<WorldScriptContainer> scripts = new ArrayList<>();
+
+        // The script path (like 'events.on some event') for each script, in the casing the script uses.
+        public List<String> paths = new ArrayList<>();
+    }
+
+    // Map of lowercased event name (without 'on ') to the scripts that handle it, built by scanWorldEvents.
+    public static Map<String, IndexedEvent> eventIndex = new HashMap<>();
+
+    public static class AlternateEvent {
+
+        // The event name with object identifiers stripped.
+        public String name;
+
+        // The indexed event for that name, or null if no script handles it.
+        public IndexedEvent indexed;
+    }
+
+    // Map of fired event names (that contain object identifiers) to their alternate, reset whenever eventIndex is rebuilt.
+    public static Map<String, AlternateEvent> alternateIndex = new HashMap<>();
+
+    // Fired names are usually a small fixed set, but may embed object identities, so stop remembering new names past this size.
+    public static int maxAlternateIndexSize = 4096;
+
+    public static AlternateEvent getAlternateEvent(String eventName) {
+        if (eventName.indexOf('@') == -1) {
+            return null;
+        }
+        AlternateEvent result = alternateIndex.get(eventName);
+        if (result == null) {
+            result = new AlternateEvent();
+            result.name = stripObjectIdentifiers(eventName);
+            result.indexed = getIndexedEvent(result.name);
+            if (alternateIndex.size() < maxAlternateIndexSize) {
+                alternateIndex.put(eventName, result);
+            }
+        }
+        return result;
+    }
+
+    public static IndexedEvent getIndexedEvent(String eventName) {
+        IndexedEvent result = eventIndex.get(eventName);
+        if (result != null) {
+            return result;
+        }
+        for (int i = 0; i < eventName.length(); i++) {
+            char c = eventName.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                return eventIndex.get(CoreUtilities.toLowerCase(eventName));
+            }
+        }
+        return null;
+    }
+
     //////////////////
     // PERFORMANCE
     ///////////
 
     public static void scanWorldEvents() {
+        eventIndex.clear();
+        alternateIndex.clear();
         try {
             // Build a Map of scripts keyed by 'world events name'.
 
@@ -67,6 +127,11 @@ public class OldEventManager {
                         }
                         list.add(script);
                         events.put(eventName, list);
+                        if (eventName1.low.startsWith("on ")) {
+                            IndexedEvent indexed = eventIndex.computeIfAbsent(eventName1.low.substring("on ".length()), k -> new IndexedEvent());
+                            indexed.scripts.add(script);
+                            indexed.paths.add("events." + eventName1.str);
+                        }
                     }
                 }
                 else {
@@ -116,25 +181,8 @@ public class OldEventManager {
         Set<String> newEvents = new HashSet<>();
 
         for (String event : events) {
-            // NOTE: The below code deletes [a-z]{1,2}\@
             if (event.indexOf('@') != -1) {
-                StringBuilder sb = new StringBuilder();
-                int len = event.length();
-                char[] data = event.toCharArray();
-                for (int i = 0; i < len; i++) {
-                    if (data[i] >= 'a' && data[i] <= 'z' && i + 1 < len) {
-                        if (i + 2 < len && data[i + 2] == '@') {
-                            i += 2;
-                            continue;
-                        }
-                        if (data[i + 1] == '@') {
-                            i++;
-                            continue;
-                        }
-                    }
-                    sb.append(data[i]);
-                }
-                newEvents.add(sb.toString());
+                newEvents.add(stripObjectIdentifiers(event));
             }
         }
 
@@ -144,40 +192,91 @@ public class OldEventManager {
         return finalEvents;
     }
 
+    public static String stripObjectIdentifiers(String event) {
+        // NOTE: The below code deletes [a-z]{1,2}\@
+        StringBuilder sb = new StringBuilder();
+        int len = event.length();
+        char[] data = event.toCharArray();
+        for (int i = 0; i < len; i++) {
+            if (data[i] >= 'a' && data[i] <= 'z' && i + 1 < len) {
+                if (i + 2 < len && data[i + 2] == '@') {
+                    i += 2;
+                    continue;
+                }
+                if (data[i + 1] == '@') {
+                    i++;
+                    continue;
+                }
+            }
+            sb.append(data[i]);
+        }
+        return sb.toString();
+    }
+
     ///////////////////
     //  MECHANICS
     ///////////////
 
     public static List<String> doEvents(List<String> eventNames, ScriptEntryData data, Map<String, ObjectTag> context, boolean strip_ids) {
-        return doEvents(addAlternates(eventNames), data, context);
+        return runEvents(eventNames, data, context, true);
     }
 
     public static List<String> doEvents(List<String> eventNames, ScriptEntryData data, Map<String, ObjectTag> context) {
+        return runEvents(eventNames, data, context, false);
+    }
+
+    // Where a name resolves more than once, its last position counts.
+    private static void addToRun(List<IndexedEvent> toRun, List<String> toRunNames, IndexedEvent indexed, String eventName) {
+        if (indexed == null) {
+            return;
+        }
+        int existing = toRun.indexOf(indexed);
+        if (existing != -1) {
+            toRun.remove(existing);
+            toRunNames.remove(existing);
+        }
+        toRun.add(indexed);
+        toRunNames.add(eventName);
+    }
+
+    private static List<String> runEvents(List<String> eventNames, ScriptEntryData data, Map<String, ObjectTag> context, boolean withAlternates) {
 
         try {
             List<String> determinations = new ArrayList<>();
 
-            // Trim again to catch events that don't trim internally.
-            eventNames = trimEvents(eventNames);
+            if (Debug.showEventsTrimming) {
+                Debug.echoApproval("Trimming world events '" + eventNames.toString() + '\'');
+            }
 
+            // Resolve names via the index, then (if requested) the alternates of names with object identifiers, after all the original names.
+            List<IndexedEvent> toRun = new ArrayList<>(2);
+            List<String> toRunNames = new ArrayList<>(2);
             for (String eventName : eventNames) {
+                addToRun(toRun, toRunNames, getIndexedEvent(eventName), eventName);
+            }
+            if (withAlternates) {
+                for (String eventName : eventNames) {
+                    AlternateEvent alternate = getAlternateEvent(eventName);
+                    if (alternate != null) {
+                        addToRun(toRun, toRunNames, alternate.indexed, alternate.name);
+                    }
+                }
+            }
 
-                if (events.containsKey("ON " + eventName.toUpperCase()))
-
-                {
-                    for (WorldScriptContainer script : events.get("ON " + eventName.toUpperCase())) {
-
-                        if (script == null) {
-                            continue;
-                        }
+            for (int e = 0; e < toRun.size(); e++) {
+                IndexedEvent indexed = toRun.get(e);
+                String eventName = toRunNames.get(e);
+                for (int s = 0; s < indexed.scripts.size(); s++) {
+                    WorldScriptContainer script = indexed.scripts.get(s);
 
-                        // Fetch script from Event
-                        List<ScriptEntry> entries = script.getEntries(data, "events.on " + eventName);
+                    // Fetch script from Event
+                    List<ScriptEntry> entries = script.getEntries(data, indexed.paths.get(s));
 
-                        if (entries.isEmpty()) {
-                            continue;
-                        }
+                    if (entries.isEmpty()) {
+                        continue;
+                    }
 
+                    if (DenizenCore.getImplementation().shouldDebug(script)) {
                         Debug.report(script, "Event",
                                 ArgumentHelper.debugObj("Type", "on " + eventName)
                                         + script.getAsScriptArg().debug()
@@ -186,23 +285,23 @@ public class OldEventManager {
 
                         Debug.echoDebug(script, Debug.DebugElement.Header, "Building event 'ON " + eventName.toUpperCase()
                                 + "' for " + script.getName());
+                    }
 
-                        // Add entries and context to the queue
-                        ScriptQueue queue = new InstantQueue(script.getName()).addEntries(entries);
+                    // Add entries and context to the queue
+                    ScriptQueue queue = new InstantQueue(script.getName()).addEntries(entries);
 
-                        if (context != null) {
-                            OldEventContextSource oecs = new OldEventContextSource();
-                            oecs.contexts = context;
-                            queue.setContextSource(oecs);
-                        }
+                    if (context != null) {
+                        OldEventContextSource oecs = new OldEventContextSource();
+                        oecs.contexts = context;
+                        queue.setContextSource(oecs);
+                    }
 
-                        // Start the queue!
-                        queue.start();
+                    // Start the queue!
+                    queue.start();
 
-                        // Check the determination
-                        if (queue.determinations != null) {
-                            determinations = queue.determinations;
-                        }
+                    // Check the determination
+                    if (queue.determinations != null) {
+                        determinations = queue.determinations;
                     }
                 }
             }
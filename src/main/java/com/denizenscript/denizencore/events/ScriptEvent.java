@@ -2,6 +2,7 @@ package com.denizenscript.denizencore.events;
 
 import com.denizenscript.denizencore.events.core.*;
 import com.denizenscript.denizencore.objects.ArgumentHelper;
+import com.denizenscript.denizencore.objects.core.DurationTag;
 import com.denizenscript.denizencore.scripts.containers.core.WorldScriptContainer;
 import com.denizenscript.denizencore.scripts.queues.ContextSource;
 import com.denizenscript.denizencore.objects.core.ElementTag;
@@ -9,6 +10,7 @@ import com.denizenscript.denizencore.objects.ObjectTag;
 import com.denizenscript.denizencore.scripts.ScriptEntry;
 import com.denizenscript.denizencore.scripts.ScriptEntryData;
 import com.denizenscript.denizencore.scripts.ScriptEntrySet;
+import com.denizenscript.denizencore.scripts.ScriptRegistry;
 import com.denizenscript.denizencore.scripts.containers.ScriptContainer;
 import com.denizenscript.denizencore.scripts.queues.ScriptQueue;
 import com.denizenscript.denizencore.scripts.queues.core.InstantQueue;
@@ -16,11 +18,11 @@ import com.denizenscript.denizencore.tags.TagContext;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
 import com.denizenscript.denizencore.utilities.YamlConfiguration;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
-import com.denizenscript.denizencore.utilities.scheduling.OneTimeSchedulable;
 import com.denizenscript.denizencore.utilities.text.StringHolder;
 import com.denizenscript.denizencore.DenizenCore;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 public abstract class ScriptEvent implements ContextSource, Cloneable {
@@ -58,6 +60,40 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
 
     public static HashMap<String, ScriptEvent> eventLookup = new HashMap<>();
 
+    /**
+     * The paths built for a world container at the last reload, along with the events block they were built from.
+     */
+    public static class PathCacheEntry {
+
+        public int keysHash;
+
+        public Map<StringHolder, Object> eventsBlock;
+
+        public List<ScriptPath> paths = new ArrayList<>();
+
+        public boolean isSameBlock(YamlConfiguration config) {
+            Map<StringHolder, Object> block = config.getMap();
+            return keysHash == getKeysHash(block) && eventsBlock.equals(block);
+        }
+
+        // StringHolder keys compare case-insensitively, so the raw key casing is hashed separately.
+        public static int getKeysHash(Map<StringHolder, Object> block) {
+            int hash = 0;
+            for (StringHolder key : block.keySet()) {
+                hash += key.str.hashCode();
+            }
+            return hash;
+        }
+    }
+
+    // Paths from the last reload by container name, used to skip re-parsing and re-matching containers that have not changed.
+    public static HashMap<String, PathCacheEntry> pathCache = new HashMap<>();
+
+    // The registered events and script names at the time the path cache was built. If either changes, the cache is not used.
+    public static List<ScriptEvent> pathCacheEvents = null;
+
+    public static Set<String> pathCacheScriptNames = null;
+
     public static class StatData {
         public long fires = 0;
         public long scriptFires = 0;
@@ -66,6 +102,140 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
 
     public StatData stats = new StatData();
 
+    public static class PathStatData {
+
+        public long checks = 0;
+        public long matches = 0;
+        public long runs = 0;
+        public long totalNanos = 0;
+        public long maxNanos = 0;
+
+        // Run time histogram, two buckets per power of two (nanoseconds). Allocated on first run.
+        public long[] histogram = null;
+
+        public static int bucketFor(long nanos) {
+            if (nanos < 2) {
+                return (int) Math.max(nanos, 0);
+            }
+            int log = 63 - Long.numberOfLeadingZeros(nanos);
+            return log * 2 + (int) ((nanos >> (log - 1)) & 1);
+        }
+
+        public static long bucketUpperBound(int bucket) {
+            if (bucket < 2) {
+                return bucket;
+            }
+            int log = bucket / 2;
+            long half = 1L << (log - 1);
+            return (1L << log) + (bucket % 2) * half + half - 1;
+        }
+
+        public void recordRun(long nanos) {
+            runs++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+            if (histogram == null) {
+                histogram = new long[128];
+            }
+            histogram[bucketFor(nanos)]++;
+        }
+
+        /**
+         * Returns the approximate run time, in nanoseconds, that the given fraction (0 to 1) of runs were at or below.
+         */
+        public long percentileNanos(double fraction) {
+            if (histogram == null || runs == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(runs * fraction);
+            long seen = 0;
+            for (int i = 0; i < histogram.length; i++) {
+                seen += histogram[i];
+                if (seen >= target) {
+                    return Math.min(bucketUpperBound(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        public void reset() {
+            checks = 0;
+            matches = 0;
+            runs = 0;
+            totalNanos = 0;
+            maxNanos = 0;
+            histogram = null;
+        }
+
+        @Override
+        public String toString() {
+            return checks + " checks, " + matches + " matches, " + runs + " runs totalling " + (totalNanos / 1000000f) + "ms (max " + (maxNanos / 1000000f)
+                    + "ms, p50 " + (percentileNanos(0.5) / 1000000f) + "ms, p95 " + (percentileNanos(0.95) / 1000000f) + "ms, p99 " + (percentileNanos(0.99) / 1000000f) + "ms)";
+        }
+    }
+
+    /**
+     * Returns all currently loaded script paths, each only once.
+     */
+    public static Collection<ScriptPath> getAllPaths() {
+        LinkedHashSet<ScriptPath> paths = new LinkedHashSet<>();
+        for (ScriptEvent event : events) {
+            paths.addAll(event.eventPaths);
+        }
+        return paths;
+    }
+
+    public static void resetPathStats() {
+        for (ScriptPath path : getAllPaths()) {
+            path.stats.reset();
+        }
+    }
+
+    /**
+     * Resets the stats of only the script paths from the given script.
+     */
+    public static void resetPathStats(ScriptContainer container) {
+        for (ScriptPath path : getAllPaths()) {
+            if (path.container == container) {
+                path.stats.reset();
+            }
+        }
+    }
+
+    /**
+     * Returns a report of the script paths with the highest total run time.
+     */
+    public static String getPathStats(int limit) {
+        List<ScriptPath> paths = new ArrayList<>(getAllPaths());
+        paths.sort((a, b) -> Long.compare(b.stats.totalNanos, a.stats.totalNanos));
+        StringBuilder output = new StringBuilder();
+        for (int i = 0; i < paths.size() && i < limit; i++) {
+            ScriptPath path = paths.get(i);
+            if (path.stats.checks == 0) {
+                break;
+            }
+            output.append("Path '").append(path).append("': ").append(path.stats).append("\n");
+        }
+        return output.toString();
+    }
+
+    /**
+     * How often (in seconds) to log the path stats report automatically, or 0 to never do so.
+     */
+    public static int pathStatsDumpSeconds = 0;
+
+    public static int pathStatsDumpLimit = 20;
+
+    static long secondsSincePathStatsDump = 0;
+
+    public static void checkPathStatsDump() {
+        if (pathStatsDumpSeconds <= 0 || ++secondsSincePathStatsDump < pathStatsDumpSeconds) {
+            return;
+        }
+        secondsSincePathStatsDump = 0;
+        Debug.log("Script event path stats:\n" + getPathStats(pathStatsDumpLimit));
+    }
+
     public static class ScriptPath {
 
         public ScriptContainer container;
@@ -83,6 +253,27 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
         public TagContext context;
         public boolean fireAfter = false;
 
+        // The full key of this path in the events block (like 'on some event').
+        public String rawEventPath;
+
+        // Matchers for the switches registered by the events this path matched, precompiled at reload.
+        public HashMap<String, MatchHelper> switchMatchers = new HashMap<>();
+
+        // Flag names from the 'server_flagged' switch, or null if not present.
+        public String[] serverFlaggedNames;
+
+        public PathStatData stats = new PathStatData();
+
+        // Minimum time between runs from the 'rate_limit' switch, or 0 if not limited.
+        public long rateLimitMillis = 0;
+
+        public long nextAllowedRun = 0;
+
+        // Whether the 'coalesce' switch is set, and the latest matched event waiting to run for this path.
+        public boolean coalesce = false;
+
+        public ScriptEvent coalescedEvent = null;
+
         public String rawEventArgAt(int index) {
             return index < rawEventArgs.length ? rawEventArgs[index] : "";
         }
@@ -125,6 +316,12 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
         // It can be used like "on player breaks block permission:denizen.my.perm:"
         // As with any advanced switch, for multiple flag or permission requirements, just list them separated by '|' pipes, like "flagged:a|b|c".
         //
+        // For events that fire very often, every script event has the "rate_limit:<duration>" and "coalesce:true" switches.
+        // "rate_limit" limits the path to running at most once per the given duration, like "on tick rate_limit:1s:" to run at most once a second.
+        // "coalesce:true" makes all matches of the path within a tick run only once, at the end of the tick, with the context of the latest match.
+        // A coalesced path always runs after the event has happened, so determinations have no effect (as with "after" events).
+        // These are cheaper than using the 'ratelimit' command or flags, as no queue is created for skipped runs.
+        //
         // Events that occur at a specific location have the "in:<area>" and "location_flagged" switches.
         // This switches will be ignored (not counted one way or the other) for events that don't have a known location.
         // For "in:<area>" switches, 'area' is any area-defining tag type - refer to <@link language Script Event Object Matchables>.
@@ -149,6 +346,7 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
 
         public ScriptPath(ScriptContainer container, String event, String rawEventPath) {
             this.event = event;
+            this.rawEventPath = rawEventPath;
             rawEventArgs = CoreUtilities.split(event, ' ').toArray(new String[0]);
             this.container = container;
             context = DenizenCore.getImplementation().getTagContext(container);
@@ -167,12 +365,60 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
             eventArgsLower = CoreUtilities.split(eventLower, ' ').toArray(new String[0]);
             switch_cancelled = switches.containsKey("cancelled") ? CoreUtilities.equalsIgnoreCase(switches.get("cancelled"), "true") : null;
             switch_ignoreCancelled = switches.containsKey("ignorecancelled") ? CoreUtilities.equalsIgnoreCase(switches.get("ignorecancelled"), "true") : null;
+            String flagSwitch = switches.get("server_flagged");
+            if (flagSwitch != null) {
+                serverFlaggedNames = CoreUtilities.split(flagSwitch, '|').toArray(new String[0]);
+            }
+            String rateLimit = switches.get("rate_limit");
+            if (rateLimit != null) {
+                DurationTag duration = DurationTag.valueOf(rateLimit, context);
+                if (duration == null) {
+                    Debug.echoError("Invalid script event rate_limit '" + rateLimit + "' for '" + this + "': must be a duration.");
+                }
+                else {
+                    rateLimitMillis = duration.getMillis();
+                }
+            }
+            coalesce = CoreUtilities.equalsIgnoreCase(switches.get("coalesce"), "true");
+            String priorityString = switches.get("priority");
+            if (priorityString != null) {
+                try {
+                    priority = Integer.parseInt(priorityString);
+                }
+                catch (NumberFormatException ex) {
+                    Debug.echoError("Invalid script event priority '" + priorityString + "' for '" + this + "': must be a whole number.");
+                }
+            }
             set = container.getSetFor("events." + rawEventPath);
             if (set == null || set.entries == null) {
                 Debug.echoError("Invalid script (formatting error?) in container '" + container.getName() + " at event '" + rawEventPath + "'.");
             }
         }
 
+        /**
+         * Moves this path over to an identical container reloaded from the same source, keeping the parsed event and match results.
+         */
+        public void rebind(ScriptContainer newContainer) {
+            container = newContainer;
+            context = DenizenCore.getImplementation().getTagContext(newContainer);
+            nextAllowedRun = 0;
+            coalescedEvent = null;
+            set = newContainer.getSetFor("events." + rawEventPath);
+            if (set == null || set.entries == null) {
+                Debug.echoError("Invalid script (formatting error?) in container '" + newContainer.getName() + " at event '" + rawEventPath + "'.");
+            }
+        }
+
+        /**
+         * Precompiles matchers for the given switch names. Called at reload with the switches registered by each event this path matched.
+         */
+        public void compileSwitches(Collection<String> names) {
+            for (String name : names) {
+                String value = switches.get(name);
+                switchMatchers.put(name, value == null ? noSwitchMatcher : createMatcher(value));
+            }
+        }
+
         @Override
         public String toString() {
             return container.getName() + ".events.on " + event;
@@ -219,12 +465,39 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
                 }
             }
         }
+        coalescedPaths.clear();
+        Set<String> scriptNames = new HashSet<>(ScriptRegistry.scriptContainers.keySet());
+        boolean useCache = events.equals(pathCacheEvents) && scriptNames.equals(pathCacheScriptNames);
+        HashMap<String, PathCacheEntry> newCache = new HashMap<>();
+        Set<ScriptPath> reusedPaths = Collections.newSetFromMap(new IdentityHashMap<>());
         List<ScriptPath> paths = new ArrayList<>(worldContainers.size() * 3);
         for (ScriptContainer container : worldContainers) {
             YamlConfiguration config = container.getConfigurationSection("events");
             if (config == null) {
                 continue;
             }
+            PathCacheEntry cached = useCache ? pathCache.get(container.getName()) : null;
+            if (cached != null && cached.isSameBlock(config)) {
+                PathCacheEntry entry = new PathCacheEntry();
+                entry.eventsBlock = cached.eventsBlock;
+                entry.keysHash = cached.keysHash;
+                for (ScriptPath path : cached.paths) {
+                    path.rebind(container);
+                    if (path.set == null) {
+                        Debug.echoError("Script path '" + path + "' is invalid (empty or misconfigured).");
+                        continue;
+                    }
+                    reusedPaths.add(path);
+                    entry.paths.add(path);
+                    paths.add(path);
+                }
+                newCache.put(container.getName(), entry);
+                continue;
+            }
+            PathCacheEntry entry = new PathCacheEntry();
+            entry.eventsBlock = config.getMap();
+            entry.keysHash = PathCacheEntry.getKeysHash(entry.eventsBlock);
+            newCache.put(container.getName(), entry);
             for (StringHolder evt1 : config.getKeys(false)) {
                 String evt;
                 boolean after = false;
@@ -246,26 +519,63 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
                     Debug.echoError("Script path '" + path + "' is invalid (empty or misconfigured).");
                     continue;
                 }
+                entry.paths.add(path);
                 paths.add(path);
             }
         }
+        pathCache = newCache;
+        pathCacheEvents = new ArrayList<>(events);
+        pathCacheScriptNames = scriptNames;
         for (ScriptEvent event : events) {
             try {
                 event.destroy();
-                event.eventPaths.clear();
-                boolean matched = false;
-                for (ScriptPath path : paths) {
+            }
+            catch (Throwable ex) {
+                Debug.echoError("Failed to reload event '" + event.getName() + "':");
+                Debug.echoError(ex);
+            }
+            event.eventPaths.clear();
+            event.dispatchIndex = null;
+        }
+        // Reused paths keep their match results from the last reload, so only new paths are checked against every event.
+        HashSet<ScriptEvent> failedEvents = new HashSet<>();
+        for (ScriptPath path : paths) {
+            if (reusedPaths.contains(path)) {
+                for (ScriptEvent event : path.matches) {
+                    event.eventPaths.add(path);
+                }
+                continue;
+            }
+            for (ScriptEvent event : events) {
+                if (failedEvents.contains(event)) {
+                    continue;
+                }
+                try {
                     if (event.couldMatch(path)) {
                         event.eventPaths.add(path);
                         path.matches.add(event);
                         if (Debug.showLoading) {
                             Debug.log("Event match, " + event.getName() + " matched for '" + path + "'!");
                         }
-                        matched = true;
                     }
                 }
-                if (matched) {
+                catch (Throwable ex) {
+                    failedEvents.add(event);
+                    Debug.echoError("Failed to reload event '" + event.getName() + "':");
+                    Debug.echoError(ex);
+                }
+            }
+        }
+        for (ScriptEvent event : events) {
+            try {
+                if (!event.eventPaths.isEmpty() && !failedEvents.contains(event)) {
+                    for (ScriptPath path : event.eventPaths) {
+                        if (!reusedPaths.contains(path)) {
+                            path.compileSwitches(event.matchSwitches);
+                        }
+                    }
                     event.sort();
+                    event.buildDispatchIndex();
                     event.init();
                 }
             }
@@ -274,6 +584,9 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
                 Debug.echoError(ex);
             }
         }
+        if (!failedEvents.isEmpty()) {
+            pathCacheEvents = null;
+        }
         for (ScriptPath path : paths) {
             if (path.matches.size() > 1) {
                 Debug.log("Event " + path + " is matched to multiple ScriptEvents: " + CoreUtilities.join(", ", path.matches));
@@ -282,7 +595,7 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
                 Debug.echoError("Event " + path + " is not matched to any ScriptEvents.");
             }
         }
-        Debug.log("Processed " + paths.size() + " script event paths.");
+        Debug.log("Processed " + paths.size() + " script event paths (" + reusedPaths.size() + " unchanged).");
     }
 
     // <--[language]
@@ -323,6 +636,19 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
 
     public ArrayList<ScriptPath> eventPaths = new ArrayList<>();
 
+    // Switches this event checks with runGenericSwitchCheck, which get precompiled on each path at reload.
+    public HashSet<String> matchSwitches = new HashSet<>();
+
+    /**
+     * Registers switches that this event checks via runGenericSwitchCheck, so that their matchers are precompiled when scripts load.
+     * Should be called in the event's constructor.
+     */
+    public void registerSwitches(String... names) {
+        for (String name : names) {
+            matchSwitches.add(CoreUtilities.toLowerCase(name));
+        }
+    }
+
     public boolean cancelled = false;
 
     // <--[language]
@@ -338,21 +664,146 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
     // The default priority is 0.
     // -->
     public void sort() {
-        try {
-            for (ScriptPath path : eventPaths) {
-                String gotten = path.switches.get("priority");
-                path.priority = gotten == null ? 0 : Integer.parseInt(gotten);
-            }
-        }
-        catch (NumberFormatException ex) {
-            Debug.echoError("Failed to sort events: not-a-number priority value! " + ex.getMessage());
-        }
         eventPaths.sort((scriptPath, t1) -> {
             int rel = scriptPath.priority - t1.priority;
             return Integer.compare(rel, 0);
         });
     }
 
+    // Per-event index of paths by the key value they require, to avoid checking every path on every fire.
+    public PathDispatchIndex dispatchIndex = null;
+
+    /**
+     * Returns a matcher for the single value (eg a material name) this path requires for the event to match, or null if the path may match any value.
+     * Paths that return null are checked on every fire. Events that implement this must also implement getDispatchKey.
+     */
+    public MatchHelper getDispatchMatcher(ScriptPath path) {
+        return null;
+    }
+
+    /**
+     * Returns the value, for the current fire, that paths are indexed against via getDispatchMatcher, or null to check all paths.
+     */
+    public String getDispatchKey() {
+        return null;
+    }
+
+    public void buildDispatchIndex() {
+        dispatchIndex = null;
+        MatchHelper[] matchers = new MatchHelper[eventPaths.size()];
+        boolean any = false;
+        for (int i = 0; i < matchers.length; i++) {
+            matchers[i] = getDispatchMatcher(eventPaths.get(i));
+            any = any || matchers[i] != null;
+        }
+        if (any) {
+            dispatchIndex = new PathDispatchIndex(eventPaths, matchers);
+        }
+    }
+
+    public static class PathDispatchIndex {
+
+        public List<ScriptPath> paths;
+
+        public HashMap<String, int[]> exact = new HashMap<>();
+
+        public String[] prefixes, suffixes;
+
+        public int[] prefixPaths, suffixPaths, always;
+
+        public PathDispatchIndex(List<ScriptPath> paths, MatchHelper[] matchers) {
+            this.paths = paths;
+            HashMap<String, List<Integer>> exactLists = new HashMap<>();
+            List<String> prefixList = new ArrayList<>(), suffixList = new ArrayList<>();
+            List<Integer> prefixPathList = new ArrayList<>(), suffixPathList = new ArrayList<>(), alwaysList = new ArrayList<>();
+            for (int i = 0; i < matchers.length; i++) {
+                List<MatchHelper> options = new ArrayList<>();
+                if (matchers[i] == null || !flatten(matchers[i], options)) {
+                    alwaysList.add(i);
+                    continue;
+                }
+                for (MatchHelper option : options) {
+                    if (option instanceof ExactMatchHelper) {
+                        exactLists.computeIfAbsent(((ExactMatchHelper) option).text, k -> new ArrayList<>()).add(i);
+                    }
+                    else if (option instanceof PostfixAsteriskMatchHelper) {
+                        prefixList.add(((PostfixAsteriskMatchHelper) option).text);
+                        prefixPathList.add(i);
+                    }
+                    else {
+                        suffixList.add(((PrefixAsteriskMatchHelper) option).text);
+                        suffixPathList.add(i);
+                    }
+                }
+            }
+            for (Map.Entry<String, List<Integer>> entry : exactLists.entrySet()) {
+                exact.put(entry.getKey(), toArray(entry.getValue()));
+            }
+            prefixes = prefixList.toArray(new String[0]);
+            suffixes = suffixList.toArray(new String[0]);
+            prefixPaths = toArray(prefixPathList);
+            suffixPaths = toArray(suffixPathList);
+            always = toArray(alwaysList);
+        }
+
+        private static int[] toArray(List<Integer> list) {
+            int[] result = new int[list.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = list.get(i);
+            }
+            return result;
+        }
+
+        private static boolean flatten(MatchHelper matcher, List<MatchHelper> output) {
+            if (matcher instanceof MultipleMatchesHelper) {
+                for (MatchHelper subMatcher : ((MultipleMatchesHelper) matcher).matches) {
+                    if (!flatten(subMatcher, output)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            if (matcher instanceof ExactMatchHelper || matcher instanceof PrefixAsteriskMatchHelper || matcher instanceof PostfixAsteriskMatchHelper) {
+                output.add(matcher);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Returns the paths that could match the given key, in priority order.
+         */
+        public List<ScriptPath> getCandidates(String key) {
+            key = CoreUtilities.toLowerCase(key);
+            int[] exactPaths = exact.get(key);
+            int[] result = new int[always.length + (exactPaths == null ? 0 : exactPaths.length) + prefixPaths.length + suffixPaths.length];
+            System.arraycopy(always, 0, result, 0, always.length);
+            int count = always.length;
+            if (exactPaths != null) {
+                System.arraycopy(exactPaths, 0, result, count, exactPaths.length);
+                count += exactPaths.length;
+            }
+            for (int i = 0; i < prefixes.length; i++) {
+                if (key.startsWith(prefixes[i])) {
+                    result[count++] = prefixPaths[i];
+                }
+            }
+            for (int i = 0; i < suffixes.length; i++) {
+                if (key.endsWith(suffixes[i])) {
+                    result[count++] = suffixPaths[i];
+                }
+            }
+            Arrays.sort(result, 0, count);
+            List<ScriptPath> output = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                if (i == 0 || result[i] != result[i - 1]) {
+                    output.add(paths.get(result[i]));
+                }
+            }
+            return output;
+        }
+    }
+
     public void init() {
     }
 
@@ -405,9 +856,8 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
     }
 
     public boolean matches(ScriptPath path) {
-        String flagSwitch = path.switches.get("server_flagged");
-        if (flagSwitch != null) {
-            for (String flag : CoreUtilities.split(flagSwitch, '|')) {
+        if (path.serverFlaggedNames != null) {
+            for (String flag : path.serverFlaggedNames) {
                 if (!DenizenCore.getImplementation().getServerFlags().hasFlag(flag)) {
                     return false;
                 }
@@ -418,15 +868,55 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
 
     public abstract String getName();
 
+    /**
+     * Optional cheap check, run before any path is checked, for whether any path could possibly match the current event data.
+     * Implementations can override this to skip all path matching (eg when every path requires a value that the current fire doesn't have).
+     */
+    public boolean anyPathCouldMatch() {
+        return true;
+    }
+
+    /**
+     * Fires the event for all matching paths.
+     * Returns the copy of the event that was passed to the scripts (and so has any determinations applied),
+     * or this instance if no path matched.
+     */
     public ScriptEvent fire() {
-        ScriptEvent copy = clone();
+        if (eventPaths.isEmpty() || !anyPathCouldMatch()) {
+            return this;
+        }
+        // Clone lazily: until a path runs, the event is unchanged, so paths can be checked against this instance directly.
+        ScriptEvent copy = null;
         stats.fires++;
-        for (ScriptPath path : eventPaths) {
+        List<ScriptPath> paths = eventPaths;
+        if (dispatchIndex != null) {
+            String key = getDispatchKey();
+            if (key != null) {
+                paths = dispatchIndex.getCandidates(key);
+            }
+        }
+        for (ScriptPath path : paths) {
             try {
-                if (matchesScript(copy, path)) {
-                    if (path.fireAfter) {
-                        final ScriptPath finalPath = path;
-                        DenizenCore.schedule(new OneTimeSchedulable(() -> copy.run(finalPath), 0.01f));
+                if (path.rateLimitMillis > 0 && DenizenCore.serverTimeMillis < path.nextAllowedRun) {
+                    continue;
+                }
+                path.stats.checks++;
+                if (matchesScript(copy == null ? this : copy, path)) {
+                    path.stats.matches++;
+                    if (copy == null) {
+                        copy = clone();
+                    }
+                    if (path.rateLimitMillis > 0) {
+                        path.nextAllowedRun = DenizenCore.serverTimeMillis + path.rateLimitMillis;
+                    }
+                    if (path.coalesce) {
+                        if (path.coalescedEvent == null) {
+                            coalescedPaths.add(path);
+                        }
+                        path.coalescedEvent = copy;
+                    }
+                    else if (path.fireAfter) {
+                        deferredAfterEvents.add(new DeferredAfterEvent(copy, path));
                     }
                     else {
                         copy.run(path);
@@ -438,7 +928,80 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
                 Debug.echoError(e);
             }
         }
-        return copy;
+        return copy == null ? this : copy;
+    }
+
+    public static class DeferredAfterEvent {
+
+        public ScriptEvent event;
+
+        public ScriptPath path;
+
+        public DeferredAfterEvent(ScriptEvent event, ScriptPath path) {
+            this.event = event;
+            this.path = path;
+        }
+    }
+
+    public static class DeferredStatData {
+        public long ran = 0;
+        public long ticksOverflowed = 0;
+        public long maxBacklog = 0;
+    }
+
+    /**
+     * Matched 'after' event paths waiting to run, in the order they were fired. Only accessed from the main thread.
+     */
+    public static final ArrayDeque<DeferredAfterEvent> deferredAfterEvents = new ArrayDeque<>();
+
+    /**
+     * The maximum number of 'after' event paths to run per tick, or 0 for no limit.
+     * Anything past the limit is held over to the following tick.
+     */
+    public static int maxAfterEventsPerTick = 0;
+
+    public static DeferredStatData deferredStats = new DeferredStatData();
+
+    /**
+     * Runs all 'after' event paths fired since the last call. Called once per tick by the core.
+     */
+    public static void runDeferredAfterEvents() {
+        int count = deferredAfterEvents.size();
+        if (count == 0) {
+            return;
+        }
+        deferredStats.maxBacklog = Math.max(deferredStats.maxBacklog, count);
+        if (maxAfterEventsPerTick > 0 && count > maxAfterEventsPerTick) {
+            count = maxAfterEventsPerTick;
+            deferredStats.ticksOverflowed++;
+        }
+        // Paths fired by the paths run here are added to the end, and wait for the next tick.
+        for (int i = 0; i < count; i++) {
+            DeferredAfterEvent deferred = deferredAfterEvents.poll();
+            deferredStats.ran++;
+            deferred.event.run(deferred.path);
+        }
+    }
+
+    /**
+     * Paths with the 'coalesce' switch that matched during the current tick. Only accessed from the main thread.
+     */
+    public static final ArrayList<ScriptPath> coalescedPaths = new ArrayList<>();
+
+    /**
+     * Runs each coalesced path once, with the latest event that matched it. Called once per tick by the core.
+     */
+    public static void runCoalescedPaths() {
+        if (coalescedPaths.isEmpty()) {
+            return;
+        }
+        ScriptPath[] toRun = coalescedPaths.toArray(new ScriptPath[0]);
+        coalescedPaths.clear();
+        for (ScriptPath path : toRun) {
+            ScriptEvent event = path.coalescedEvent;
+            path.coalescedEvent = null;
+            event.run(path);
+        }
     }
 
     private String currentEvent;
@@ -457,11 +1020,17 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
             ScriptQueue queue = new InstantQueue(path.container.getName()).addEntries(entries);
             currentEvent = path.event;
             queue.setContextSource(this);
-            if (!path.fireAfter) {
+            if (path.coalesce) {
+                // The real event has already finished by the time a coalesced path runs, so a determination can't affect it.
+                queue.determinationTarget = (o) -> Debug.echoError(queue, "Determination '" + o + "' ignored: paths with the 'coalesce' switch run after the event, so determinations have no effect.");
+            }
+            else if (!path.fireAfter) {
                 queue.determinationTarget = (o) -> applyDetermination(path, o);
             }
             queue.start();
-            stats.nanoTimes += System.nanoTime() - queue.startTime;
+            long nanos = System.nanoTime() - queue.startTime;
+            stats.nanoTimes += nanos;
+            path.stats.recordRun(nanos);
         }
         catch (Exception e) {
             Debug.echoError("Handling script " + path.container.getName() + " path:" + path.event + ":::");
@@ -666,6 +1235,131 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
         }
     }
 
+    /**
+     * A character trie used to check many exact, prefix ("text*"), or suffix ("*text") alternatives in a single pass over the input.
+     */
+    public static class MatcherTrieNode {
+
+        public char[] chars = new char[0];
+
+        public MatcherTrieNode[] children = new MatcherTrieNode[0];
+
+        public boolean endsExact, endsWildcard;
+
+        public MatcherTrieNode getOrAdd(char c) {
+            for (int i = 0; i < chars.length; i++) {
+                if (chars[i] == c) {
+                    return children[i];
+                }
+            }
+            chars = Arrays.copyOf(chars, chars.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            chars[chars.length - 1] = c;
+            MatcherTrieNode result = new MatcherTrieNode();
+            children[children.length - 1] = result;
+            return result;
+        }
+
+        public MatcherTrieNode get(char c) {
+            if (c >= 'A' && c <= 'Z') {
+                c -= 'A' - 'a';
+            }
+            for (int i = 0; i < chars.length; i++) {
+                if (chars[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        public void add(String text, boolean reverse, boolean wildcard) {
+            MatcherTrieNode node = this;
+            for (int i = 0; i < text.length(); i++) {
+                node = node.getOrAdd(text.charAt(reverse ? text.length() - 1 - i : i));
+            }
+            if (wildcard) {
+                node.endsWildcard = true;
+            }
+            else {
+                node.endsExact = true;
+            }
+        }
+
+        public boolean matchesForward(String input) {
+            MatcherTrieNode node = this;
+            for (int i = 0; i < input.length(); i++) {
+                if (node.endsWildcard) {
+                    return true;
+                }
+                node = node.get(input.charAt(i));
+                if (node == null) {
+                    return false;
+                }
+            }
+            return node.endsExact || node.endsWildcard;
+        }
+
+        public boolean matchesBackward(String input) {
+            MatcherTrieNode node = this;
+            for (int i = input.length() - 1; i >= 0; i--) {
+                if (node.endsWildcard) {
+                    return true;
+                }
+                node = node.get(input.charAt(i));
+                if (node == null) {
+                    return false;
+                }
+            }
+            return node.endsWildcard;
+        }
+    }
+
+    /**
+     * A multiple-matcher with its exact and single-asterisk alternatives compiled into tries, so matching costs one pass over the input regardless of how many of those there are.
+     * Any other alternatives (regex, multiple asterisks, etc.) are checked one at a time afterward.
+     */
+    public static class TrieMultipleMatchesHelper extends MultipleMatchesHelper {
+
+        public MatcherTrieNode forward = new MatcherTrieNode();
+
+        public MatcherTrieNode backward = new MatcherTrieNode();
+
+        public MatchHelper[] others;
+
+        public TrieMultipleMatchesHelper(MatchHelper[] matches) {
+            super(matches);
+            List<MatchHelper> otherList = new ArrayList<>();
+            for (MatchHelper match : matches) {
+                if (match instanceof ExactMatchHelper) {
+                    forward.add(((ExactMatchHelper) match).text, false, false);
+                }
+                else if (match instanceof PostfixAsteriskMatchHelper) {
+                    forward.add(((PostfixAsteriskMatchHelper) match).text, false, true);
+                }
+                else if (match instanceof PrefixAsteriskMatchHelper) {
+                    backward.add(((PrefixAsteriskMatchHelper) match).text, true, true);
+                }
+                else {
+                    otherList.add(match);
+                }
+            }
+            others = otherList.toArray(new MatchHelper[0]);
+        }
+
+        @Override
+        public boolean doesMatch(String input) {
+            if (forward.matchesForward(input) || backward.matchesBackward(input)) {
+                return true;
+            }
+            for (MatchHelper match : others) {
+                if (match.doesMatch(input)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
     public static class InverseMatchHelper extends MatchHelper {
 
         public InverseMatchHelper(MatchHelper matcher) {
@@ -680,7 +1374,7 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
         }
     }
 
-    public static final HashMap<String, MatchHelper> knownMatchers = new HashMap<>();
+    public static final Map<String, MatchHelper> knownMatchers = new ConcurrentHashMap<>();
 
     public static boolean isAdvancedMatchable(String input) {
         return input.startsWith("regex:") || CoreUtilities.contains(input, '|') || CoreUtilities.contains(input, '*') || input.startsWith("!");
@@ -701,10 +1395,14 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
         else if (CoreUtilities.contains(input, '|')) {
             List<String> split = CoreUtilities.split(input, '|');
             MatchHelper[] matchers = new MatchHelper[split.size()];
+            int trieable = 0;
             for (int i = 0; i < split.size(); i++) {
                 matchers[i] = createMatcher(split.get(i));
+                if (matchers[i] instanceof ExactMatchHelper || matchers[i] instanceof PrefixAsteriskMatchHelper || matchers[i] instanceof PostfixAsteriskMatchHelper) {
+                    trieable++;
+                }
             }
-            result = new MultipleMatchesHelper(matchers);
+            result = trieable > 1 ? new TrieMultipleMatchesHelper(matchers) : new MultipleMatchesHelper(matchers);
         }
         else if ((asterisk = input.indexOf('*')) != -1) {
             if (input.length() == 1) {
@@ -736,7 +1434,18 @@ public abstract class ScriptEvent implements ContextSource, Cloneable {
         return matcher.doesMatch(trueValue);
     }
 
+    // Marks a registered switch that the path doesn't have.
+    public static final MatchHelper noSwitchMatcher = new AlwaysMatchHelper();
+
     public static boolean runGenericSwitchCheck(ScriptPath path, String switchName, String value) {
+        MatchHelper compiled = path.switchMatchers.get(switchName);
+        if (compiled != null) {
+            if (compiled == noSwitchMatcher) {
+                return true;
+            }
+            // Matchers are all case-insensitive, so no need to lowercase the value
+            return value != null && compiled.doesMatch(value);
+        }
         String with = path.switches.get(switchName);
         if (with == null) {
             return true;
@@ -19,6 +19,7 @@ public class ConsoleOutputScriptEvent extends ScriptEvent {
     // @Cancellable true
     //
     // @Triggers when any message is printed to console. (Requires <@link mechanism system.redirect_logging> be set true.)
+    // Messages are held and processed on the next server tick, so while this event is in use, console output may be delayed by up to a tick.
     //
     // @Context
     // <context.message> returns the message that is being printed to console.
@@ -5,8 +5,9 @@ import com.denizenscript.denizencore.objects.core.ElementTag;
 import com.denizenscript.denizencore.objects.ObjectTag;
 import com.denizenscript.denizencore.scripts.ScriptEntryData;
 import com.denizenscript.denizencore.DenizenCore;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
 
-import java.util.Calendar;
+import java.util.*;
 
 public class SystemTimeScriptEvent extends ScriptEvent {
 
@@ -42,6 +43,32 @@ public class SystemTimeScriptEvent extends ScriptEvent {
         return path.eventLower.startsWith("system time");
     }
 
+    public static final int TYPE_NEVER = 0, TYPE_SECONDLY = 1, TYPE_MINUTELY = 2, TYPE_HOURLY = 3, TYPE_TIME = 4;
+
+    public static class TimeTrigger {
+
+        public int type;
+
+        public int every = 1;
+
+        // For TYPE_TIME, the minute of the day (hour * 60 + minute) the path runs at.
+        public int minuteOfDay;
+    }
+
+    public static final ElementTag[] HOUR_TAGS = new ElementTag[24];
+
+    public static final ElementTag[] MINUTE_TAGS = new ElementTag[60];
+
+    static {
+        for (int i = 0; i < 60; i++) {
+            ElementTag tag = new ElementTag(i < 10 ? "0" + i : String.valueOf(i));
+            if (i < 24) {
+                HOUR_TAGS[i] = tag;
+            }
+            MINUTE_TAGS[i] = tag;
+        }
+    }
+
     public ElementTag hour;
 
     public ScriptEntryData data = null;
@@ -50,6 +77,15 @@ public class SystemTimeScriptEvent extends ScriptEvent {
 
     public long seconds;
 
+    public long minutes;
+
+    public Map<ScriptPath, TimeTrigger> triggers = new IdentityHashMap<>();
+
+    public int[] secondlyCounts = new int[0], minutelyCounts = new int[0], hourlyCounts = new int[0];
+
+    // Minute-of-day values that at least one HH:MM path runs at.
+    public BitSet timedMinutes = new BitSet(24 * 60);
+
     @Override
     public ScriptEntryData getScriptEntryData() {
         return data;
@@ -57,36 +93,72 @@ public class SystemTimeScriptEvent extends ScriptEvent {
 
     @Override
     public boolean matches(ScriptPath path) {
-        String time = path.rawEventArgAt(2);
+        TimeTrigger trigger = triggers.get(path);
+        if (trigger == null || !isDue(trigger.type, trigger.every, trigger.minuteOfDay)) {
+            return false;
+        }
+        return super.matches(path);
+    }
+
+    public boolean isDue(int type, int every, int minuteOfDay) {
+        switch (type) {
+            case TYPE_SECONDLY:
+                return seconds % every == 0;
+            case TYPE_MINUTELY:
+                return minuteChanged && minutes % every == 0;
+            case TYPE_HOURLY:
+                return minuteChanged && lM == 0 && (seconds / 3600) % every == 0;
+            case TYPE_TIME:
+                return minuteChanged && minuteOfDay == lH * 60 + lM;
+        }
+        return false;
+    }
+
+    public TimeTrigger buildTrigger(ScriptPath path) {
+        TimeTrigger trigger = new TimeTrigger();
         String countString = path.switches.get("every");
-        int count = countString == null ? 1 : Integer.parseInt(countString);
-        if (time.equals("secondly")) {
-            if (seconds % count != 0) {
-                return false;
+        if (countString != null) {
+            try {
+                trigger.every = Integer.parseInt(countString);
             }
-        }
-        else if (time.equals("minutely")) {
-            if (!minuteChanged) {
-                return false;
+            catch (NumberFormatException ex) {
+                trigger.every = 0;
             }
-            long minutes = seconds / 60;
-            if (minutes % count != 0) {
-                return false;
+            if (trigger.every <= 0) {
+                Debug.echoError("Invalid 'every' switch value '" + countString + "' for event '" + path + "'.");
+                return trigger;
             }
         }
-        else if (time.equals("hourly")) {
-            if (!minuteChanged || lM != 0) {
-                return false;
-            }
-            long hours = seconds / 3600;
-            if (hours % count != 0) {
-                return false;
-            }
+        String time = path.rawEventArgAt(2);
+        switch (time) {
+            case "secondly":
+                trigger.type = TYPE_SECONDLY;
+                break;
+            case "minutely":
+                trigger.type = TYPE_MINUTELY;
+                break;
+            case "hourly":
+                trigger.type = TYPE_HOURLY;
+                break;
+            default:
+                if (time.length() == 5 && time.charAt(2) == ':') {
+                    int h = parseTwoDigits(time, 0);
+                    int m = parseTwoDigits(time, 3);
+                    if (h >= 0 && h < 24 && m >= 0 && m < 60) {
+                        trigger.type = TYPE_TIME;
+                        trigger.minuteOfDay = h * 60 + m;
+                    }
+                }
         }
-        else if (!minuteChanged || !time.equals(hour.asString() + ":" + minute.asString())) {
-            return false;
+        return trigger;
+    }
+
+    public static int parseTwoDigits(String str, int start) {
+        char a = str.charAt(start), b = str.charAt(start + 1);
+        if (a < '0' || a > '9' || b < '0' || b > '9') {
+            return -1;
         }
-        return super.matches(path);
+        return (a - '0') * 10 + (b - '0');
     }
 
     @Override
@@ -109,45 +181,107 @@ public class SystemTimeScriptEvent extends ScriptEvent {
 
     @Override
     public void init() {
+        triggers.clear();
+        timedMinutes.clear();
+        List<Integer> secondly = new ArrayList<>(), minutely = new ArrayList<>(), hourly = new ArrayList<>();
+        for (ScriptPath path : eventPaths) {
+            TimeTrigger trigger = buildTrigger(path);
+            triggers.put(path, trigger);
+            switch (trigger.type) {
+                case TYPE_SECONDLY:
+                    addCount(secondly, trigger.every);
+                    break;
+                case TYPE_MINUTELY:
+                    addCount(minutely, trigger.every);
+                    break;
+                case TYPE_HOURLY:
+                    addCount(hourly, trigger.every);
+                    break;
+                case TYPE_TIME:
+                    timedMinutes.set(trigger.minuteOfDay);
+                    break;
+            }
+        }
+        secondlyCounts = toArray(secondly);
+        minutelyCounts = toArray(minutely);
+        hourlyCounts = toArray(hourly);
         enab = true;
     }
 
+    static void addCount(List<Integer> counts, int every) {
+        if (!counts.contains(every)) {
+            counts.add(every);
+        }
+    }
+
+    static int[] toArray(List<Integer> counts) {
+        int[] result = new int[counts.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = counts.get(i);
+        }
+        return result;
+    }
+
     @Override
     public void destroy() {
         enab = false;
+        triggers.clear();
     }
 
     int lH = 0;
     int lM = 0;
     long lS = 0;
+    long lastEpochMinute = -1;
     boolean minuteChanged = true;
 
+    public boolean anyDue() {
+        for (int count : secondlyCounts) {
+            if (seconds % count == 0) {
+                return true;
+            }
+        }
+        if (!minuteChanged) {
+            return false;
+        }
+        for (int count : minutelyCounts) {
+            if (minutes % count == 0) {
+                return true;
+            }
+        }
+        if (lM == 0) {
+            long hours = seconds / 3600;
+            for (int count : hourlyCounts) {
+                if (hours % count == 0) {
+                    return true;
+                }
+            }
+        }
+        return timedMinutes.get(lH * 60 + lM);
+    }
+
     public void checkTime() {
         if (!enab) {
             return;
         }
-        seconds = System.currentTimeMillis() / 1000;
+        long millis = System.currentTimeMillis();
+        seconds = millis / 1000;
         if (lS == seconds) {
             return;
         }
         lS = seconds;
-        Calendar calendar = Calendar.getInstance();
-        int h = calendar.get(Calendar.HOUR_OF_DAY);
-        int m = calendar.get(Calendar.MINUTE);
-        minuteChanged = lH != h || lM != m;
-        lH = h;
-        lM = m;
-        if (h < 10) {
-            hour = new ElementTag("0" + h);
-        }
-        else {
-            hour = new ElementTag(h);
-        }
-        if (m < 10) {
-            minute = new ElementTag("0" + m);
-        }
-        else {
-            minute = new ElementTag(m);
+        minutes = seconds / 60;
+        minuteChanged = minutes != lastEpochMinute;
+        if (minuteChanged) {
+            lastEpochMinute = minutes;
+            long localMinutes = (millis + TimeZone.getDefault().getOffset(millis)) / 60000;
+            int minuteOfDay = (int) Math.floorMod(localMinutes, 24L * 60);
+            lH = minuteOfDay / 60;
+            lM = minuteOfDay % 60;
+            hour = HOUR_TAGS[lH];
+            minute = MINUTE_TAGS[lM];
+        }
+        if (!anyDue()) {
+            return;
         }
         data = DenizenCore.getImplementation().getEmptyScriptEntryData();
         fire();
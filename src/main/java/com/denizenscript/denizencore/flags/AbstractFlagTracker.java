@@ -167,6 +167,21 @@ public abstract class AbstractFlagTracker {
         return result;
     }
 
+    /**
+     * Returns a copy of all current flags that may be safely read from another thread while this tracker keeps being changed on the main thread.
+     * Must be called on the main thread.
+     */
+    public AbstractFlagTracker snapshot() {
+        MapTagFlagTracker result = new MapTagFlagTracker();
+        for (String key : listAllFlags()) {
+            ObjectTag value = getFlagValue(key);
+            if (value != null) {
+                result.setFlag(key, value.snapshot(), getFlagExpirationTime(key));
+            }
+        }
+        return result;
+    }
+
     public MapTag doFlagMapTag(Attribute attribute) {
         listFlagsTagWarning.warn(attribute.context);
         return getFlagMap();
@@ -13,9 +13,9 @@ import java.util.Map;
 
 public abstract class MapTagBasedFlagTracker extends AbstractFlagTracker {
 
-    public static StringHolder valueString = new StringHolder("__value");
+    public static StringHolder valueString = StringHolder.intern("__value");
 
-    public static StringHolder expirationString = new StringHolder("__expiration");
+    public static StringHolder expirationString = StringHolder.intern("__expiration");
 
     public static boolean skipAllCleanings = false;
 
@@ -112,6 +112,18 @@ public abstract class MapTagBasedFlagTracker extends AbstractFlagTracker {
         return (TimeTag) getFlagValueOfType(key, expirationString);
     }
 
+    @Override
+    public AbstractFlagTracker snapshot() {
+        MapTag result = new MapTag();
+        for (String key : listAllFlags()) {
+            MapTag rootMap = getRootMap(key);
+            if (rootMap != null) {
+                result.map.put(StringHolder.intern(key), rootMap.snapshot());
+            }
+        }
+        return new MapTagFlagTracker(result);
+    }
+
     public boolean doClean(MapTag map) {
         if (skipAllCleanings) {
             return false;
@@ -1,13 +1,17 @@
 package com.denizenscript.denizencore.flags;
 
+import com.denizenscript.denizencore.objects.BinaryObjectCodec;
 import com.denizenscript.denizencore.objects.ObjectFetcher;
 import com.denizenscript.denizencore.objects.ObjectTag;
 import com.denizenscript.denizencore.objects.core.MapTag;
 import com.denizenscript.denizencore.utilities.AsciiMatcher;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.utilities.text.StringHolder;
 
+import java.io.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
@@ -20,38 +24,78 @@ public class SavableMapFlagTracker extends MapTagBasedFlagTracker {
 
         public String string;
 
+        // Value in BinaryObjectCodec form, from or for a binary flag file.
+        public byte[] binary;
+
         public boolean canExpire;
 
+        // True if the saved form could not be read. The flag then reads as an empty map, and its saved form is kept as-is so it can be written back unchanged.
+        public boolean unreadable;
+
         public MapTag getMap() {
             if (map == null) {
-                if (string.startsWith("map@")) {
+                if (binary != null) {
+                    ObjectTag value = BinaryObjectCodec.decode(binary, CoreUtilities.errorButNoDebugContext);
+                    map = value instanceof MapTag ? (MapTag) value : null;
+                }
+                else if (string.startsWith("map@")) {
                     map = MapTag.valueOf(string, CoreUtilities.errorButNoDebugContext);
                 }
                 else {
                     map = new MapTag();
                     map.map.put(valueString, ObjectFetcher.pickObjectFor(string, CoreUtilities.errorButNoDebugContext));
                 }
+                if (map == null) {
+                    Debug.echoError("Saved flag value could not be read, and will be kept unchanged but otherwise ignored.");
+                    unreadable = true;
+                    map = new MapTag();
+                }
             }
             return map;
         }
 
         public String getString() {
             if (string == null) {
-                if (map.map.containsKey(expirationString) || map.map.get(valueString) instanceof MapTag) {
+                MapTag map = getMap();
+                ObjectTag value = map.map.get(valueString);
+                if (value == null || map.map.containsKey(expirationString) || value instanceof MapTag) {
                     string = map.savable();
                 }
                 else {
-                    string = map.map.get(valueString).savable();
+                    string = value.savable();
                 }
             }
             return string;
         }
+
+        public byte[] getBinary() {
+            if (binary == null) {
+                binary = BinaryObjectCodec.encode(getMap());
+            }
+            return binary;
+        }
     }
 
+    /**
+     * If true, flag files are saved in binary form (see BinaryObjectCodec) rather than as text.
+     * Either form can be loaded regardless of this setting.
+     */
+    public static boolean saveBinaryFlagFiles = false;
+
+    public static final byte[] BINARY_FILE_HEADER = new byte[] { 'D', 'Z', 'F', 'L' };
+
+    public static final int RECORD_EXPIRABLE = 1, RECORD_TEXT = 2;
+
     public HashMap<StringHolder, SaveOptimizedFlag> map;
 
     public boolean modified;
 
+    /**
+     * If the file this tracker was loaded from could not be fully read, the reason why (otherwise null).
+     * Such a tracker is never saved, so that the unreadable file is not replaced by an incomplete copy of it.
+     */
+    public String loadError;
+
     public SavableMapFlagTracker() {
         map = new HashMap<>();
     }
@@ -73,7 +117,7 @@ public class SavableMapFlagTracker extends MapTagBasedFlagTracker {
                 SaveOptimizedFlag flag = new SaveOptimizedFlag();
                 flag.canExpire = expirable;
                 flag.string = value;
-                map.put(new StringHolder(key), flag);
+                map.put(StringHolder.intern(key), flag);
             }
             startOfLine = eol + 1;
             eol = input.indexOf('\n', eol + 1);
@@ -81,6 +125,45 @@ public class SavableMapFlagTracker extends MapTagBasedFlagTracker {
         doTotalClean();
     }
 
+    /**
+     * Loads a binary flag file. Each flag is kept in its saved form (binary or text) until first used.
+     * If the file is damaged partway through, the flags read before that point are kept and 'loadError' is set.
+     */
+    public SavableMapFlagTracker(byte[] input) throws IOException {
+        BinaryObjectCodec.ByteReader data = new BinaryObjectCodec.ByteReader(input);
+        byte[] header = new byte[BINARY_FILE_HEADER.length];
+        data.readFully(header);
+        if (!Arrays.equals(header, BINARY_FILE_HEADER)) {
+            throw new IOException("Not a binary flag file");
+        }
+        int version = data.readUnsignedByte();
+        if (version > BinaryObjectCodec.FORMAT_VERSION) {
+            throw new IOException("Binary flag file is from a newer version (format " + version + ")");
+        }
+        int count = BinaryObjectCodec.readVarInt(data);
+        map = new HashMap<>(Math.max(0, Math.min(count, 1 << 16)) * 4 / 3 + 1);
+        try {
+            for (int i = 0; i < count; i++) {
+                String key = BinaryObjectCodec.readString(data);
+                int recordType = data.readUnsignedByte();
+                SaveOptimizedFlag flag = new SaveOptimizedFlag();
+                flag.canExpire = (recordType & RECORD_EXPIRABLE) != 0;
+                if ((recordType & RECORD_TEXT) != 0) {
+                    flag.string = BinaryObjectCodec.readString(data);
+                }
+                else {
+                    flag.binary = new byte[BinaryObjectCodec.readVarInt(data)];
+                    data.readFully(flag.binary);
+                }
+                map.put(StringHolder.intern(key), flag);
+            }
+        }
+        catch (IOException | RuntimeException ex) {
+            loadError = "damaged after " + map.size() + " of " + count + " flags (" + ex + ")";
+        }
+        doTotalClean();
+    }
+
     public void doTotalClean() {
         if (MapTagBasedFlagTracker.skipAllCleanings) {
             return;
@@ -99,6 +182,7 @@ public class SavableMapFlagTracker extends MapTagBasedFlagTracker {
                 if (subValue instanceof MapTag) {
                     if (doClean((MapTag) subValue)) {
                         entry.getValue().string = null;
+                        entry.getValue().binary = null;
                         modified = true;
                     }
                 }
@@ -115,7 +199,8 @@ public class SavableMapFlagTracker extends MapTagBasedFlagTracker {
         if (flag == null) {
             return null;
         }
-        return flag.getMap();
+        MapTag result = flag.getMap();
+        return flag.unreadable ? null : result;
     }
 
     @Override
@@ -131,7 +216,7 @@ public class SavableMapFlagTracker extends MapTagBasedFlagTracker {
         if (value.map.containsKey(expirationString) || value.map.get(valueString) instanceof MapTag) {
             flag.canExpire = true;
         }
-        map.put(new StringHolder(key), flag);
+        map.put(StringHolder.intern(key), flag);
     }
 
     @Override
@@ -199,7 +284,67 @@ public class SavableMapFlagTracker extends MapTagBasedFlagTracker {
         return toOutput.toString();
     }
 
+    /**
+     * Returns the binary flag file form of this tracker.
+     * Flags that were loaded as text and never used are written as their text, rather than parsed just to be re-encoded.
+     */
+    public byte[] toBinary() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(map.size() * 64);
+        DataOutputStream data = new DataOutputStream(bytes);
+        try {
+            data.write(BINARY_FILE_HEADER);
+            data.writeByte(BinaryObjectCodec.FORMAT_VERSION);
+            BinaryObjectCodec.writeVarInt(data, map.size());
+            for (Map.Entry<StringHolder, SaveOptimizedFlag> entry : map.entrySet()) {
+                SaveOptimizedFlag flag = entry.getValue();
+                BinaryObjectCodec.writeString(data, entry.getKey().str);
+                int recordType = flag.canExpire ? RECORD_EXPIRABLE : 0;
+                // Flags still in (or stuck in, if unreadable) their loaded form are written back in that same form.
+                byte[] binary = flag.binary != null ? flag.binary : flag.map == null || flag.unreadable ? null : flag.getBinary();
+                if (binary == null) {
+                    data.writeByte(recordType | RECORD_TEXT);
+                    BinaryObjectCodec.writeString(data, flag.getString());
+                }
+                else {
+                    data.writeByte(recordType);
+                    BinaryObjectCodec.writeVarInt(data, binary.length);
+                    data.write(binary);
+                }
+            }
+        }
+        catch (IOException ex) {
+            // ByteArrayOutputStream does not throw.
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
     public static SavableMapFlagTracker loadFlagFile(String filePath) {
+        // Prefer the file in the currently selected form, but load the other if that's all there is (eg after changing the setting).
+        boolean binary = saveBinaryFlagFiles ? CoreUtilities.getJournalledFile(filePath + ".dfb") != null : CoreUtilities.getJournalledFile(filePath + ".dat") == null;
+        if (binary && CoreUtilities.getJournalledFile(filePath + ".dfb") != null) {
+            // Never fall back to the text file here: a successful binary save removes it, so it would be empty or stale.
+            byte[] content = CoreUtilities.journallingLoadBytes(filePath + ".dfb");
+            SavableMapFlagTracker tracker;
+            if (content == null) {
+                tracker = new SavableMapFlagTracker();
+                tracker.loadError = "file could not be read";
+            }
+            else {
+                try {
+                    tracker = new SavableMapFlagTracker(content);
+                }
+                catch (IOException ex) {
+                    tracker = new SavableMapFlagTracker();
+                    tracker.loadError = ex.getMessage();
+                }
+            }
+            if (tracker.loadError != null) {
+                Debug.echoError("Failed to fully read binary flag file '" + filePath + ".dfb': " + tracker.loadError + ". " + tracker.map.size()
+                        + " flag(s) were recovered. Changes to these flags will not be saved, to avoid overwriting the file - repair or remove it and restart.");
+            }
+            return tracker;
+        }
         String content = CoreUtilities.journallingLoadFile(filePath + ".dat");
         if (content == null) {
             return new SavableMapFlagTracker();
@@ -208,6 +353,26 @@ public class SavableMapFlagTracker extends MapTagBasedFlagTracker {
     }
 
     public void saveToFile(String filePath) {
-        CoreUtilities.journallingFileSave(filePath + ".dat", toString());
+        if (loadError != null) {
+            return;
+        }
+        // Remove the file in the other form once saved, so a stale copy of it can't be loaded later.
+        if (saveBinaryFlagFiles) {
+            if (CoreUtilities.journallingFileSave(filePath + ".dfb", toBinary())) {
+                CoreUtilities.journallingFileDelete(filePath + ".dat");
+            }
+        }
+        else {
+            // An unreadable binary value has no text form, so saving as text would lose it.
+            for (SaveOptimizedFlag flag : map.values()) {
+                if (flag.unreadable && flag.binary != null) {
+                    Debug.echoError("Cannot save flags to '" + filePath + ".dat' as text, as some values from the binary flag file could not be read.");
+                    return;
+                }
+            }
+            if (CoreUtilities.journallingFileSave(filePath + ".dat", toString().getBytes(CoreUtilities.getFileSaveCharset()))) {
+                CoreUtilities.journallingFileDelete(filePath + ".dfb");
+            }
+        }
     }
 }
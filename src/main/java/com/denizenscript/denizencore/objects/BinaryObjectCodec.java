@@ -0,0 +1,447 @@
+package com.denizenscript.denizencore.objects;
+
+import com.denizenscript.denizencore.objects.core.*;
+import com.denizenscript.denizencore.tags.TagContext;
+import com.denizenscript.denizencore.utilities.debugging.Debug;
+import com.denizenscript.denizencore.utilities.text.StringHolder;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A compact binary form of ObjectTags, for persistence that doesn't need to be human-readable (such as binary flag files).
+ * Core types are written field-by-field, implementation types can register an Extension, and anything else is written as its savable() text.
+ */
+public class BinaryObjectCodec {
+
+    /**
+     * Increase when the format changes in a way older readers can't handle. Readers reject data with a newer version.
+     */
+    public static final int FORMAT_VERSION = 2;
+
+    // TYPE_EXTENSION is only written by format 1, and TYPE_EXTENSION_WITH_TEXT replaces it from format 2.
+    public static final int TYPE_NULL = 0, TYPE_TEXT = 1, TYPE_ELEMENT = 2, TYPE_ELEMENT_INTEGER = 3, TYPE_LIST = 4, TYPE_MAP = 5,
+            TYPE_DURATION = 6, TYPE_TIME = 7, TYPE_QUEUE = 8, TYPE_SCRIPT = 9, TYPE_EXTENSION = 10, TYPE_EXTENSION_WITH_TEXT = 11;
+
+    /**
+     * Writes and reads the binary form of one implementation object type.
+     */
+    public interface Extension<T extends ObjectTag> {
+
+        void write(T object, DataOutput output) throws IOException;
+
+        T read(DataInput input, TagContext context) throws IOException;
+    }
+
+    public static class RegisteredExtension<T extends ObjectTag> {
+
+        public String name;
+
+        public Class<T> clazz;
+
+        public Extension<T> extension;
+    }
+
+    public static Map<Class<? extends ObjectTag>, RegisteredExtension<?>> extensionsByClass = new ConcurrentHashMap<>();
+
+    public static Map<String, RegisteredExtension<?>> extensionsByName = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a binary form for an exact object class. The name is what gets written to identify the type, so it must never change once data has been saved with it.
+     */
+    public static <T extends ObjectTag> void registerExtension(String name, Class<T> clazz, Extension<T> extension) {
+        RegisteredExtension<T> registered = new RegisteredExtension<>();
+        registered.name = name;
+        registered.clazz = clazz;
+        registered.extension = extension;
+        extensionsByClass.put(clazz, registered);
+        extensionsByName.put(name, registered);
+    }
+
+    /**
+     * A DataInput reading directly from a byte array, without the stream layers (and their locking) of DataInputStream over ByteArrayInputStream.
+     */
+    public static class ByteReader implements DataInput {
+
+        public final byte[] data;
+
+        public int position;
+
+        public final int end;
+
+        public ByteReader(byte[] data) {
+            this(data, 0, data.length);
+        }
+
+        public ByteReader(byte[] data, int offset, int length) {
+            this.data = data;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        private int require(int count) throws EOFException {
+            if (count < 0 || count > end - position) {
+                throw new EOFException();
+            }
+            int start = position;
+            position += count;
+            return start;
+        }
+
+        @Override
+        public void readFully(byte[] b) throws IOException {
+            readFully(b, 0, b.length);
+        }
+
+        @Override
+        public void readFully(byte[] b, int off, int len) throws IOException {
+            System.arraycopy(data, require(len), b, off, len);
+        }
+
+        @Override
+        public int skipBytes(int n) {
+            int skipped = Math.max(0, Math.min(n, end - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean readBoolean() throws IOException {
+            return data[require(1)] != 0;
+        }
+
+        @Override
+        public byte readByte() throws IOException {
+            return data[require(1)];
+        }
+
+        @Override
+        public int readUnsignedByte() throws IOException {
+            return data[require(1)] & 0xFF;
+        }
+
+        @Override
+        public short readShort() throws IOException {
+            int i = require(2);
+            return (short) ((data[i] << 8) | (data[i + 1] & 0xFF));
+        }
+
+        @Override
+        public int readUnsignedShort() throws IOException {
+            return readShort() & 0xFFFF;
+        }
+
+        @Override
+        public char readChar() throws IOException {
+            return (char) readShort();
+        }
+
+        @Override
+        public int readInt() throws IOException {
+            int i = require(4);
+            return (data[i] << 24) | ((data[i + 1] & 0xFF) << 16) | ((data[i + 2] & 0xFF) << 8) | (data[i + 3] & 0xFF);
+        }
+
+        @Override
+        public long readLong() throws IOException {
+            return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+        }
+
+        @Override
+        public float readFloat() throws IOException {
+            return Float.intBitsToFloat(readInt());
+        }
+
+        @Override
+        public double readDouble() throws IOException {
+            return Double.longBitsToDouble(readLong());
+        }
+
+        @Override
+        public String readLine() {
+            if (position >= end) {
+                return null;
+            }
+            StringBuilder line = new StringBuilder();
+            while (position < end) {
+                char c = (char) (data[position++] & 0xFF);
+                if (c == '\n') {
+                    break;
+                }
+                if (c == '\r') {
+                    if (position < end && data[position] == '\n') {
+                        position++;
+                    }
+                    break;
+                }
+                line.append(c);
+            }
+            return line.toString();
+        }
+
+        @Override
+        public String readUTF() throws IOException {
+            return DataInputStream.readUTF(this);
+        }
+
+        public String readUTF8(int length) throws IOException {
+            return new String(data, require(length), length, StandardCharsets.UTF_8);
+        }
+    }
+
+    public static void writeVarInt(DataOutput output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    public static int readVarInt(DataInput input) throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = input.readUnsignedByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+
+    public static void writeVarLong(DataOutput output, long value) throws IOException {
+        // Zig-zag encoding, so small negative numbers stay short.
+        value = (value << 1) ^ (value >> 63);
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    public static long readVarLong(DataInput input) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = input.readUnsignedByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (result >>> 1) ^ -(result & 1);
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+
+    /**
+     * Writes a string as a length-prefixed UTF-8 byte sequence. Unlike DataOutput.writeUTF, this has no length limit.
+     */
+    public static void writeString(DataOutput output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(output, bytes.length);
+        output.write(bytes);
+    }
+
+    public static String readString(DataInput input) throws IOException {
+        int length = readVarInt(input);
+        if (length < 0) {
+            throw new IOException("Invalid string length " + length);
+        }
+        if (input instanceof ByteReader) {
+            return ((ByteReader) input).readUTF8(length);
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static void write(ObjectTag object, DataOutput output) throws IOException {
+        if (object == null) {
+            output.writeByte(TYPE_NULL);
+            return;
+        }
+        Class<?> clazz = object.getClass();
+        if (clazz == ElementTag.class) {
+            ElementTag element = (ElementTag) object;
+            String text = element.asString();
+            if (text != null && element.isInt()) {
+                long value = element.asLong();
+                if (text.equals(String.valueOf(value))) {
+                    output.writeByte(TYPE_ELEMENT_INTEGER);
+                    writeVarLong(output, value);
+                    return;
+                }
+            }
+            if (text != null) {
+                output.writeByte(TYPE_ELEMENT);
+                writeString(output, text);
+                return;
+            }
+        }
+        else if (clazz == ListTag.class) {
+            List<ObjectTag> list = ((ListTag) object).objectForms;
+            output.writeByte(TYPE_LIST);
+            writeVarInt(output, list.size());
+            for (ObjectTag entry : list) {
+                write(entry, output);
+            }
+            return;
+        }
+        else if (clazz == MapTag.class) {
+            Map<StringHolder, ObjectTag> map = ((MapTag) object).map;
+            output.writeByte(TYPE_MAP);
+            writeVarInt(output, map.size());
+            for (Map.Entry<StringHolder, ObjectTag> entry : map.entrySet()) {
+                writeString(output, entry.getKey().str);
+                write(entry.getValue(), output);
+            }
+            return;
+        }
+        else if (clazz == DurationTag.class) {
+            output.writeByte(TYPE_DURATION);
+            output.writeDouble(((DurationTag) object).getSeconds());
+            return;
+        }
+        else if (clazz == TimeTag.class) {
+            ZonedDateTime instant = ((TimeTag) object).instant;
+            output.writeByte(TYPE_TIME);
+            output.writeLong(instant.toInstant().toEpochMilli());
+            writeString(output, instant.getZone().getId());
+            return;
+        }
+        else if (clazz == QueueTag.class && ((QueueTag) object).queue != null) {
+            output.writeByte(TYPE_QUEUE);
+            writeString(output, ((QueueTag) object).queue.id);
+            return;
+        }
+        else if (clazz == ScriptTag.class && ((ScriptTag) object).getName() != null) {
+            output.writeByte(TYPE_SCRIPT);
+            writeString(output, ((ScriptTag) object).getName());
+            return;
+        }
+        else {
+            RegisteredExtension<ObjectTag> registered = (RegisteredExtension<ObjectTag>) extensionsByClass.get(clazz);
+            if (registered != null) {
+                // Length-prefixed, so data for an extension that isn't registered at load time can be skipped.
+                // The text form follows, to fall back on the same way a text save would when the binary form can't be read back.
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                registered.extension.write(object, new DataOutputStream(bytes));
+                output.writeByte(TYPE_EXTENSION_WITH_TEXT);
+                writeString(output, registered.name);
+                writeVarInt(output, bytes.size());
+                output.write(bytes.toByteArray());
+                writeString(output, object.savable());
+                return;
+            }
+        }
+        output.writeByte(TYPE_TEXT);
+        writeString(output, object.savable());
+    }
+
+    public static ObjectTag read(DataInput input, TagContext context) throws IOException {
+        int type = input.readUnsignedByte();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_TEXT:
+                return ObjectFetcher.pickObjectFor(readString(input), context);
+            case TYPE_ELEMENT:
+                return new ElementTag(readString(input));
+            case TYPE_ELEMENT_INTEGER:
+                return new ElementTag(readVarLong(input));
+            case TYPE_LIST: {
+                int size = readVarInt(input);
+                ListTag list = new ListTag(Math.min(size, 1024));
+                for (int i = 0; i < size; i++) {
+                    ObjectTag value = read(input, context);
+                    if (value != null) {
+                        list.objectForms.add(value);
+                    }
+                }
+                return list;
+            }
+            case TYPE_MAP: {
+                int size = readVarInt(input);
+                MapTag map = new MapTag();
+                for (int i = 0; i < size; i++) {
+                    StringHolder key = StringHolder.intern(readString(input));
+                    ObjectTag value = read(input, context);
+                    if (value != null) {
+                        map.map.put(key, value);
+                    }
+                }
+                return map;
+            }
+            case TYPE_DURATION:
+                return new DurationTag(input.readDouble());
+            case TYPE_TIME: {
+                long millis = input.readLong();
+                String zone = readString(input);
+                return new TimeTag(ZonedDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.of(zone)));
+            }
+            // Queues and scripts that no longer exist (eg a saved queue after a restart) become plain text, the same as with pickObjectFor.
+            case TYPE_QUEUE: {
+                String id = readString(input);
+                QueueTag queue = QueueTag.valueOf(id, context);
+                return queue != null ? queue : new ElementTag("q@" + id);
+            }
+            case TYPE_SCRIPT: {
+                String name = readString(input);
+                ScriptTag script = ScriptTag.valueOf(name, context);
+                return script != null ? script : new ElementTag("s@" + name);
+            }
+            case TYPE_EXTENSION:
+            case TYPE_EXTENSION_WITH_TEXT: {
+                String name = readString(input);
+                byte[] bytes = new byte[readVarInt(input)];
+                input.readFully(bytes);
+                String text = type == TYPE_EXTENSION_WITH_TEXT ? readString(input) : null;
+                RegisteredExtension<?> registered = extensionsByName.get(name);
+                ObjectTag result = registered == null ? null : registered.extension.read(new ByteReader(bytes), context);
+                if (result == null) {
+                    if (text != null) {
+                        return ObjectFetcher.pickObjectFor(text, context);
+                    }
+                    Debug.echoError("Cannot read saved object of " + (registered == null ? "unknown " : "") + "binary type '" + name + "'.");
+                }
+                return result;
+            }
+            default:
+                throw new IOException("Unknown binary object type " + type);
+        }
+    }
+
+    /**
+     * Returns the binary form of an object, without a version header.
+     */
+    public static byte[] encode(ObjectTag object) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            write(object, new DataOutputStream(bytes));
+        }
+        catch (IOException ex) {
+            // ByteArrayOutputStream does not throw, but an Extension might.
+            Debug.echoError(ex);
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Reads the binary form of an object from 'encode', or returns null (after showing an error) if it can't be read.
+     */
+    public static ObjectTag decode(byte[] data, TagContext context) {
+        try {
+            return read(new ByteReader(data), context);
+        }
+        catch (IOException | RuntimeException ex) {
+            Debug.echoError("Failed to read binary object data: " + ex.getMessage());
+            return null;
+        }
+    }
+}
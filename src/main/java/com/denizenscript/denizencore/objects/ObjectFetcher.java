@@ -13,6 +13,7 @@ import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ObjectFetcher {
 
@@ -40,10 +41,16 @@ public class ObjectFetcher {
         public String prefix;
 
         public boolean isAdjustable;
+
+        /**
+         * Set to true if 'valueOf' for this type ignores the context it's given (other than for error output) and always gives the same result for the same text.
+         * Only values of such types are picked lazily by 'pickObjectLazy'.
+         */
+        public boolean isContextFree;
     }
 
-    public static Map<String, ObjectType<? extends ObjectTag>> objectsByPrefix = new HashMap<>();
-    public static Map<Class<? extends ObjectTag>, ObjectType<? extends ObjectTag>> objectsByClass = new HashMap<>();
+    public static Map<String, ObjectType<? extends ObjectTag>> objectsByPrefix = new ConcurrentHashMap<>();
+    public static Map<Class<? extends ObjectTag>, ObjectType<? extends ObjectTag>> objectsByClass = new ConcurrentHashMap<>();
 
     public static void registerCoreObjects() {
         // Initialize the ObjectFetcher
@@ -55,6 +62,9 @@ public class ObjectFetcher {
         registerWithObjectFetcher(QueueTag.class, QueueTag.tagProcessor); // q@
         registerWithObjectFetcher(ScriptTag.class, ScriptTag.tagProcessor); // s@
         registerWithObjectFetcher(TimeTag.class, TimeTag.tagProcessor); // time@
+        objectsByClass.get(DurationTag.class).isContextFree = true;
+        objectsByClass.get(ElementTag.class).isContextFree = true;
+        objectsByClass.get(TimeTag.class).isContextFree = true;
     }
 
     public static MatchesInterface getMatchesFor(Class clazz) {
@@ -278,4 +288,80 @@ public class ObjectFetcher {
         }
         return new ElementTag(value);
     }
+
+    /**
+     * Returns the object for a raw value, or a PendingObject to resolve later if picking it would need an object lookup.
+     * Only values of a type marked 'isContextFree' are left pending, as those resolve the same without the parsing context and at any later time.
+     * Anything else (plain elements, and types that may depend on the context or change over time) is picked right away.
+     */
+    public static ObjectTag pickObjectLazy(String value, TagContext context) {
+        if (value == null) {
+            return null;
+        }
+        int at = value.indexOf('@');
+        if (at == -1) {
+            return pickObjectFor(value, context);
+        }
+        ObjectType<? extends ObjectTag> type = objectsByPrefix.get(value.substring(0, at));
+        if (type == null || !type.isContextFree) {
+            return pickObjectFor(value, context);
+        }
+        return new PendingObject(value, context == null || context.showErrors());
+    }
+
+    /**
+     * Placeholder for an entry of a parsed ListTag or MapTag whose object has not been picked yet.
+     * These live only inside ListTag.ObjectList and MapTag.ObjectMap, which resolve them before any entry is handed out.
+     */
+    public static class PendingObject implements ObjectTag {
+
+        public String raw;
+
+        // Only whether the parsing context showed errors is kept, as a pending object can outlive the queue that parsed it (eg inside a flag).
+        public boolean showErrors;
+
+        public PendingObject(String raw, boolean showErrors) {
+            this.raw = raw;
+            this.showErrors = showErrors;
+        }
+
+        public ObjectTag resolve() {
+            return pickObjectFor(raw, showErrors ? CoreUtilities.errorButNoDebugContext : CoreUtilities.noDebugContext);
+        }
+
+        @Override
+        public String getPrefix() {
+            return "Pending";
+        }
+
+        @Override
+        public boolean isUnique() {
+            return false;
+        }
+
+        @Override
+        public String getObjectType() {
+            return "Pending";
+        }
+
+        @Override
+        public String identify() {
+            return raw;
+        }
+
+        @Override
+        public String identifySimple() {
+            return raw;
+        }
+
+        @Override
+        public String toString() {
+            return raw;
+        }
+
+        @Override
+        public ObjectTag setPrefix(String prefix) {
+            return this;
+        }
+    }
 }
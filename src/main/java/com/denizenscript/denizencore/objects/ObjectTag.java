@@ -159,6 +159,15 @@ public interface ObjectTag {
         return this;
     }
 
+    /**
+     * Create a stable copy of this object that may be safely read from another thread while the original keeps being changed on the main thread.
+     * Must be called on the main thread. The snapshot must never be modified.
+     * Unlike duplicate(), this only needs to copy mutable containers - immutable ObjectTags do not need to implement.
+     */
+    default ObjectTag snapshot() {
+        return this;
+    }
+
     /**
      * If any fixes need to be handled after properties are applied to an object, they should be handled here.
      */
@@ -9,8 +9,10 @@ import com.denizenscript.denizencore.utilities.CoreUtilities;
 import com.denizenscript.denizencore.utilities.Deprecations;
 import com.denizenscript.denizencore.utilities.SQLEscaper;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
+import com.denizenscript.denizencore.utilities.text.JsonReader;
 import com.denizenscript.denizencore.tags.core.EscapeTagBase;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.RoundingMode;
@@ -118,65 +120,88 @@ public class ElementTag implements ObjectTag {
         return object;
     }
 
+    // The text of the element, or null for number elements constructed from a primitive.
     private final String element;
 
+    // The text of a primitive element, built from 'primitiveBits' on first use (see 'asString').
+    private String primitiveText;
+
+    public static final byte PRIMITIVE_NONE = 0, PRIMITIVE_LONG = 1, PRIMITIVE_DOUBLE = 2;
+
+    // Whether this element was constructed from a long or double that is the source of its text, and that value (a double as its raw bits).
+    // The source fields are final so that an element is safely published to other threads (eg via 'snapshot'), and the caches below only ever hold immutable objects.
+    private final byte primitiveKind;
+
+    private final long primitiveBits;
+
     public ElementTag(String string) {
-        this.prefix = "element";
-        if (string == null) {
-            if (Debug.verbose) {
-                try {
-                    throw new RuntimeException("Trace");
-                }
-                catch (Exception ex) {
-                    Debug.echoError(ex);
-                }
-                Debug.log("Element - Null construction!");
+        this("element", string == null ? nullString() : string);
+    }
+
+    private static String nullString() {
+        if (Debug.verbose) {
+            try {
+                throw new RuntimeException("Trace");
             }
-            this.element = "null";
-        }
-        else {
-            this.element = string;
+            catch (Exception ex) {
+                Debug.echoError(ex);
+            }
+            Debug.log("Element - Null construction!");
         }
+        return "null";
     }
 
     public ElementTag(boolean bool) {
-        this.prefix = "boolean";
-        this.element = String.valueOf(bool);
+        this("boolean", String.valueOf(bool));
     }
 
     public ElementTag(int integer) {
-        this.prefix = "number";
-        this.element = String.valueOf(integer);
+        this((long) integer);
     }
 
     public ElementTag(byte byt) {
-        this.prefix = "number";
-        this.element = String.valueOf(byt);
+        this((long) byt);
     }
 
     public ElementTag(short shrt) {
-        this.prefix = "number";
-        this.element = String.valueOf(shrt);
+        this((long) shrt);
     }
 
     public ElementTag(long lng) {
         this.prefix = "number";
-        this.element = String.valueOf(lng);
+        if (lng > -1_000_000_000_000_000_000L && lng < 1_000_000_000_000_000_000L) {
+            primitiveKind = PRIMITIVE_LONG;
+            primitiveBits = lng;
+            this.element = null;
+        }
+        else {
+            primitiveKind = PRIMITIVE_NONE;
+            primitiveBits = 0;
+            this.element = String.valueOf(lng);
+        }
     }
 
     public ElementTag(BigDecimal bdl) {
-        this.prefix = "decimal";
-        this.element = CoreUtilities.bigDecToString(bdl);
+        this("decimal", CoreUtilities.bigDecToString(bdl));
     }
 
     public ElementTag(double dbl) {
         this.prefix = "decimal";
-        this.element = CoreUtilities.doubleToString(dbl);
+        // Below 2^53, the text form is plain digits with an exact whole-number part and parses back to exactly this value, so the number can be used directly.
+        if (dbl > -9007199254740992.0 && dbl < 9007199254740992.0) {
+            primitiveKind = PRIMITIVE_DOUBLE;
+            primitiveBits = Double.doubleToRawLongBits(dbl);
+            this.element = null;
+        }
+        else {
+            primitiveKind = PRIMITIVE_NONE;
+            primitiveBits = 0;
+            this.element = CoreUtilities.doubleToString(dbl);
+        }
     }
 
     public ElementTag(float flt) {
-        this.prefix = "decimal";
-        this.element = CoreUtilities.doubleToString(flt);
+        this("decimal", CoreUtilities.doubleToString(flt));
     }
 
     public ElementTag(String prefix, String string) {
@@ -187,6 +212,8 @@ public class ElementTag implements ObjectTag {
             this.prefix = prefix;
         }
         this.element = string;
+        primitiveKind = PRIMITIVE_NONE;
+        primitiveBits = 0;
     }
 
     static final BigDecimal max = new BigDecimal("10E1000");
@@ -200,53 +227,245 @@ public class ElementTag implements ObjectTag {
         return bd;
     }
 
+    public static final byte NUMBER_UNSCANNED = 0, NUMBER_INTEGER = 1, NUMBER_DECIMAL = 2, NUMBER_OTHER = 3;
+
+    /**
+     * The result of scanning an element's text for a simple number (see 'scanNumber').
+     * This is immutable and replaced as a whole, so that an element shared between threads never shows a partly filled cache.
+     */
+    private static final class ScannedNumber {
+
+        // NUMBER_OTHER means the element is not a simple number, and the original slow parsing applies.
+        final byte type;
+
+        final boolean percent;
+
+        // The whole-number part (as returned by asLong), for NUMBER_INTEGER and NUMBER_DECIMAL.
+        final long whole;
+
+        // The value as a double, for NUMBER_INTEGER and NUMBER_DECIMAL.
+        final double value;
+
+        ScannedNumber(byte type, boolean percent, long whole, double value) {
+            this.type = type;
+            this.percent = percent;
+            this.whole = whole;
+            this.value = value;
+        }
+    }
+
+    private static final ScannedNumber NOT_A_SIMPLE_NUMBER = new ScannedNumber(NUMBER_OTHER, false, 0, 0);
+
+    // Numeric form of a text element, filled by 'scanNumber' on first numeric use. Unused for primitive elements.
+    private ScannedNumber scannedNumber;
+
+    private BigDecimal numberBigDecimal;
+
+    /**
+     * Returns the number type of the element. For primitive elements this comes straight from the primitive.
+     * Text is scanned once for the simple number format: an optional sign, up to 18 whole-number digits,
+     * optionally a '.' followed by at least one digit, and optionally a single '%' at the end.
+     * Anything else (exponents, very long numbers, odd spacing, non-numbers) is marked NUMBER_OTHER.
+     */
+    private byte scanNumber() {
+        if (primitiveKind == PRIMITIVE_LONG) {
+            return NUMBER_INTEGER;
+        }
+        if (primitiveKind == PRIMITIVE_DOUBLE) {
+            double value = Double.longBitsToDouble(primitiveBits);
+            return value == (long) value ? NUMBER_INTEGER : NUMBER_DECIMAL;
+        }
+        ScannedNumber scanned = scannedNumber;
+        if (scanned == null) {
+            scanned = scanText(element);
+            scannedNumber = scanned;
+        }
+        return scanned.type;
+    }
+
+    private static ScannedNumber scanText(String str) {
+        int len = str.length();
+        boolean percent = false;
+        if (len > 0 && str.charAt(len - 1) == '%') {
+            percent = true;
+            len--;
+        }
+        int i = 0;
+        boolean negative = false;
+        if (i < len && (str.charAt(i) == '-' || str.charAt(i) == '+')) {
+            negative = str.charAt(i) == '-';
+            i++;
+        }
+        int wholeStart = i;
+        long value = 0;
+        while (i < len && str.charAt(i) >= '0' && str.charAt(i) <= '9') {
+            value = value * 10 + (str.charAt(i) - '0');
+            i++;
+        }
+        int wholeDigits = i - wholeStart;
+        if (wholeDigits == 0 || wholeDigits > 18) {
+            return NOT_A_SIMPLE_NUMBER;
+        }
+        byte type = NUMBER_INTEGER;
+        if (i < len && str.charAt(i) == '.') {
+            i++;
+            int fractionStart = i;
+            while (i < len && str.charAt(i) >= '0' && str.charAt(i) <= '9') {
+                i++;
+            }
+            if (i == fractionStart) {
+                return NOT_A_SIMPLE_NUMBER;
+            }
+            type = NUMBER_DECIMAL;
+        }
+        if (i != len) {
+            return NOT_A_SIMPLE_NUMBER;
+        }
+        long whole = negative ? -value : value;
+        double number;
+        if (type == NUMBER_DECIMAL) {
+            number = Double.parseDouble(percent ? str.substring(0, len) : str);
+        }
+        else {
+            number = negative && value == 0 ? -0.0 : whole;
+        }
+        return new ScannedNumber(type, percent, whole, number);
+    }
+
+    // The following may only be used once 'scanNumber' has returned something other than NUMBER_OTHER.
+
+    private long numberLong() {
+        if (primitiveKind == PRIMITIVE_LONG) {
+            return primitiveBits;
+        }
+        if (primitiveKind == PRIMITIVE_DOUBLE) {
+            return (long) Double.longBitsToDouble(primitiveBits);
+        }
+        return scannedNumber.whole;
+    }
+
+    private double numberDouble() {
+        if (primitiveKind == PRIMITIVE_LONG) {
+            return primitiveBits;
+        }
+        if (primitiveKind == PRIMITIVE_DOUBLE) {
+            return Double.longBitsToDouble(primitiveBits);
+        }
+        return scannedNumber.value;
+    }
+
+    private boolean numberPercent() {
+        return primitiveKind == PRIMITIVE_NONE && scannedNumber.percent;
+    }
+
+    private String withoutPercent() {
+        String str = asString();
+        return str.indexOf('%') == -1 ? str : str.replace("%", "");
+    }
+
     public BigDecimal asBigDecimal() {
-        return getBD(element.replaceAll("%", ""));
+        BigDecimal result = numberBigDecimal;
+        if (result != null) {
+            return result;
+        }
+        byte type = scanNumber();
+        if (type == NUMBER_INTEGER) {
+            result = BigDecimal.valueOf(numberLong());
+        }
+        else if (type == NUMBER_DECIMAL) {
+            String str = asString();
+            result = new BigDecimal(numberPercent() ? str.substring(0, str.length() - 1) : str);
+        }
+        else {
+            return getBD(withoutPercent());
+        }
+        numberBigDecimal = result;
+        return result;
     }
 
     public double asDouble() {
-        return Double.parseDouble(element.replaceAll("%", ""));
+        if (scanNumber() != NUMBER_OTHER) {
+            return numberDouble();
+        }
+        return Double.parseDouble(withoutPercent());
     }
 
     public float asFloat() {
-        return Float.parseFloat(element.replaceAll("%", ""));
+        return Float.parseFloat(withoutPercent());
     }
 
     public int asInt() {
+        byte type = scanNumber();
+        if (type != NUMBER_OTHER) {
+            if (numberLong() >= Integer.MIN_VALUE && numberLong() <= Integer.MAX_VALUE) {
+                return (int) numberLong();
+            }
+            Debug.echoError("'" + asString() + "' is not a valid integer!");
+            return 0;
+        }
         try {
-            return Integer.parseInt(element.replaceAll("(%)|(\\.\\d+)", ""));
+            return Integer.parseInt(asString().replaceAll("(%)|(\\.\\d+)", ""));
         }
         catch (NumberFormatException ex) {
-            Debug.echoError("'" + element + "' is not a valid integer!");
+            Debug.echoError("'" + asString() + "' is not a valid integer!");
             return 0;
         }
     }
 
     public long asLong() {
+        if (scanNumber() != NUMBER_OTHER) {
+            return numberLong();
+        }
         try {
-            return Long.parseLong(element.replaceAll("(%)|(\\.\\d+)", ""));
+            return Long.parseLong(asString().replaceAll("(%)|(\\.\\d+)", ""));
         }
         catch (NumberFormatException ex) {
-            Debug.echoError("'" + element + "' is not a valid integer!");
+            Debug.echoError("'" + asString() + "' is not a valid integer!");
             return 0;
         }
     }
 
+    private boolean hasAnyDigit() {
+        String str = asString();
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c >= '0' && c <= '9') {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public boolean asBoolean() {
-        return CoreUtilities.equalsIgnoreCase(element, "true");
+        return CoreUtilities.equalsIgnoreCase(asString(), "true");
     }
 
     public String asString() {
-        return element;
+        if (primitiveKind == PRIMITIVE_NONE) {
+            return element;
+        }
+        String result = primitiveText;
+        if (result == null) {
+            result = primitiveKind == PRIMITIVE_DOUBLE ? CoreUtilities.doubleToString(Double.longBitsToDouble(primitiveBits)) : String.valueOf(primitiveBits);
+            primitiveText = result;
+        }
+        return result;
     }
 
     public boolean isBoolean() {
-        return CoreUtilities.equalsIgnoreCase(element, "true") || CoreUtilities.equalsIgnoreCase(element, "false");
+        return CoreUtilities.equalsIgnoreCase(asString(), "true") || CoreUtilities.equalsIgnoreCase(asString(), "false");
     }
 
     public boolean isDouble() {
+        byte type = scanNumber();
+        if (type != NUMBER_OTHER) {
+            return !numberPercent();
+        }
+        if (!hasAnyDigit() && !asString().contains("Infinity")) {
+            return false;
+        }
         try {
-            if (!Double.valueOf(element).isNaN()) {
+            if (!Double.valueOf(asString()).isNaN()) {
                 return true;
             }
         }
@@ -257,7 +476,7 @@ public class ElementTag implements ObjectTag {
 
     public boolean isFloat() {
         try {
-            if (!Float.valueOf(element).isNaN()) {
+            if (!Float.valueOf(asString()).isNaN()) {
                 return true;
             }
         }
@@ -267,8 +486,15 @@ public class ElementTag implements ObjectTag {
     }
 
     public boolean isInt() {
+        byte type = scanNumber();
+        if (type != NUMBER_OTHER) {
+            return numberLong() >= Integer.MIN_VALUE && numberLong() <= Integer.MAX_VALUE;
+        }
+        if (!hasAnyDigit()) {
+            return false;
+        }
         try {
-            Integer val = Integer.valueOf(element.replaceAll("(%)|(\\.\\d+)", ""));
+            Integer val = Integer.valueOf(asString().replaceAll("(%)|(\\.\\d+)", ""));
             if (val.hashCode() != 0.5) { // if intentionally always passes
                 return true;
             }
@@ -279,20 +505,21 @@ public class ElementTag implements ObjectTag {
     }
 
     public boolean isString() {
-        return (element != null && !element.isEmpty());
+        String str = asString();
+        return str != null && !str.isEmpty();
     }
 
     public boolean matchesType(Class<? extends ObjectTag> dClass) {
-        return ObjectFetcher.checkMatch(dClass, element);
+        return ObjectFetcher.checkMatch(dClass, asString());
     }
 
     public <T extends ObjectTag> T asType(Class<T> dClass, TagContext context) {
-        return ObjectFetcher.getObjectFrom(dClass, element, context);
+        return ObjectFetcher.getObjectFrom(dClass, asString(), context);
     }
 
     public boolean matchesEnum(Enum[] values) {
         for (Enum value : values) {
-            if (CoreUtilities.equalsIgnoreCase(value.name(), element)) {
+            if (CoreUtilities.equalsIgnoreCase(value.name(), asString())) {
                 return true;
             }
         }
@@ -320,12 +547,12 @@ public class ElementTag implements ObjectTag {
 
     @Override
     public String identify() {
-        return element;
+        return asString();
     }
 
     @Override
     public String savable() {
-        return "el@" + element;
+        return "el@" + asString();
     }
 
     @Override
@@ -512,7 +739,7 @@ public class ElementTag implements ObjectTag {
         // Returns whether the element is an integer number (a number without a decimal point).
         // -->
         registerTag("is_integer", (attribute, object) -> {
-            if (!ArgumentHelper.matchesInteger(object.element)) {
+            if (!ArgumentHelper.matchesInteger(object.asString())) {
                 return new ElementTag(false);
             }
             try {
@@ -532,7 +759,7 @@ public class ElementTag implements ObjectTag {
         // Returns whether the element is a valid decimal number (the decimal point is optional).
         // -->
         registerTag("is_decimal", (attribute, object) -> {
-            if (!ArgumentHelper.matchesDouble(object.element)) {
+            if (!ArgumentHelper.matchesDouble(object.asString())) {
                 return new ElementTag(false);
             }
             try {
@@ -551,7 +778,7 @@ public class ElementTag implements ObjectTag {
         // Returns whether the element is an odd-valued decimal number. Returns 'false' for non-numbers.
         // -->
         registerTag("is_odd", (attribute, object) -> {
-            String element = object.element;
+            String element = object.asString();
             return new ElementTag(ArgumentHelper.matchesDouble(element) && (object.asBigDecimal().longValue() % 2) != 0);
         });
 
@@ -563,7 +790,7 @@ public class ElementTag implements ObjectTag {
         // Returns whether the element is an even-valued decimal number. Returns 'false' for non-numbers.
         // -->
         registerTag("is_even", (attribute, object) -> {
-            String element = object.element;
+            String element = object.asString();
             return new ElementTag(ArgumentHelper.matchesDouble(element) && (object.asBigDecimal().longValue() % 2) == 0);
         });
 
@@ -587,7 +814,7 @@ public class ElementTag implements ObjectTag {
         // Returns the element as true/false.
         // -->
         registerTag("as_boolean", (attribute, object) -> {
-            String element = object.element;
+            String element = object.asString();
             return new ElementTag(element.equalsIgnoreCase("true")
                     || element.equalsIgnoreCase("t")
                     || element.equalsIgnoreCase("1"));
@@ -601,7 +828,7 @@ public class ElementTag implements ObjectTag {
         // Returns the element as a decimal number, or shows an error.
         // -->
         registerTag("as_decimal", (attribute, object) -> {
-            String element = object.element;
+            String element = object.asString();
             try {
                 return new ElementTag(Double.valueOf(element));
             }
@@ -615,7 +842,7 @@ public class ElementTag implements ObjectTag {
 
         registerTag("as_int", (attribute, object) -> {
             Deprecations.elementAsIntTag.warn(attribute.context);
-            String element = object.element;
+            String element = object.asString();
             try {
                 return new ElementTag(Double.valueOf(element).longValue());
             }
@@ -643,7 +870,7 @@ public class ElementTag implements ObjectTag {
             }
             catch (NumberFormatException e) {
                 if (!attribute.hasAlternative()) {
-                    attribute.echoError("'" + object.element + "' is not a valid decimal number.");
+                    attribute.echoError("'" + object.asString() + "' is not a valid decimal number.");
                 }
                 return null;
             }
@@ -657,7 +884,7 @@ public class ElementTag implements ObjectTag {
         // Returns the element as a number with two decimal places.
         // -->
         registerTag("as_money", (attribute, object) -> {
-            String element = object.element;
+            String element = object.asString();
             try {
                 DecimalFormat d = new DecimalFormat("0.00", CoreUtilities.decimalFormatSymbols);
                 return new ElementTag(d.format(Double.valueOf(element)));
@@ -678,7 +905,7 @@ public class ElementTag implements ObjectTag {
         // Returns the element as a ListTag.
         // -->
         registerTag("as_list", (attribute, object) -> {
-            String element = object.element;
+            String element = object.asString();
             return handleNull(element, ListTag.valueOf(element, attribute.context), "ListTag", attribute.hasAlternative());
         }, "aslist");
 
@@ -690,10 +917,31 @@ public class ElementTag implements ObjectTag {
         // Returns the element as a MapTag.
         // -->
         registerTag("as_map", (attribute, object) -> {
-            String element = object.element;
+            String element = object.asString();
             return handleNull(element, MapTag.valueOf(element, attribute.context), "MapTag", attribute.hasAlternative());
         });
 
+        // <--[tag]
+        // @attribute <ElementTag.parse_json>
+        // @returns ObjectTag
+        // @group conversion
+        // @description
+        // Parses the element as JSON text, returning a MapTag for a JSON object or a ListTag for a JSON array.
+        // Numbers keep their text exactly as written, and true/false/null become the elements "true", "false" and "null".
+        // If the whole JSON text is just a single string, number, true, false or null, that value is returned as an ElementTag.
+        // -->
+        registerTag("parse_json", (attribute, object) -> {
+            try {
+                return JsonReader.parse(object.asString(), attribute.context);
+            }
+            catch (IOException ex) {
+                if (!attribute.hasAlternative()) {
+                    attribute.echoError("Invalid JSON: " + ex.getMessage());
+                }
+                return null;
+            }
+        });
+
         // <--[tag]
         // @attribute <ElementTag.as_custom>
         // @returns CustomObject
@@ -702,7 +950,7 @@ public class ElementTag implements ObjectTag {
         // Returns the element as a custom object.
         // -->
         registerTag("as_custom", (attribute, object) -> {
-            String element = object.element;
+            String element = object.asString();
             return handleNull(element, CustomObjectTag.valueOf(element, attribute.context), "Custom", attribute.hasAlternative());
         }, "ascustom");
 
@@ -715,7 +963,7 @@ public class ElementTag implements ObjectTag {
         // Note: the value must be a valid script.
         // -->
         registerTag("as_script", (attribute, object) -> {
-            String element = object.element;
+            String element = object.asString();
             return handleNull(element, ScriptTag.valueOf(element, attribute.context), "ScriptTag", attribute.hasAlternative());
         }, "asscript");
 
@@ -728,7 +976,7 @@ public class ElementTag implements ObjectTag {
         // Note: the value must be a valid QueueTag.
         // -->
         registerTag("as_queue", (attribute, object) -> {
-            String element = object.element;
+            String element = object.asString();
             return handleNull(element, QueueTag.valueOf(element, attribute.context), "QueueTag", attribute.hasAlternative());
         }, "asqueue");
 
@@ -741,7 +989,7 @@ public class ElementTag implements ObjectTag {
         // Note: the value must be a valid Duration.
         // -->
         registerTag("as_duration", (attribute, object) -> {
-            String element = object.element;
+            String element = object.asString();
             return handleNull(element, DurationTag.valueOf(element, attribute.context), "DurationTag", attribute.hasAlternative());
         }, "asduration");
 
@@ -755,7 +1003,7 @@ public class ElementTag implements ObjectTag {
         // See <@link language Escaping System>.
         // -->
         registerTag("escaped", (attribute, object) -> {
-            String element = object.element;
+            String element = object.asString();
             return new ElementTag(EscapeTagBase.escape(element));
         });
 
@@ -767,7 +1015,7 @@ public class ElementTag implements ObjectTag {
         // Returns the element, escaped for safe use in SQL.
         // -->
         registerTag("sql_escaped", (attribute, object) -> {
-            String element = object.element;
+            String element = object.asString();
             return new ElementTag(SQLEscaper.escapeSQL(element));
         });
 
@@ -781,7 +1029,7 @@ public class ElementTag implements ObjectTag {
         // See <@link language Escaping System>.
         // -->
         registerTag("unescaped", (attribute, object) -> {
-            String element = object.element;
+            String element = object.asString();
             return new ElementTag(EscapeTagBase.unEscape(element));
         });
 
@@ -795,7 +1043,7 @@ public class ElementTag implements ObjectTag {
         // YOU KNOW WHAT YOU ARE DOING. USE AT YOUR OWN RISK.
         // -->
         registerTag("parsed", (attribute, object) -> {
-            return TagManager.tagObject(object.element, attribute.context);
+            return TagManager.tagObject(object.asString(), attribute.context);
         });
 
         /////////////////////
@@ -810,7 +1058,7 @@ public class ElementTag implements ObjectTag {
         // Returns a number representing the difference between the two elements. (Uses Levenshtein logic).
         // -->
         registerTag("difference", (attribute, object) -> {
-            String element = object.element;
+            String element = object.asString();
             String two = attribute.getContext(1);
             return new ElementTag(CoreUtilities.getLevenshteinDistance(element, two));
         });
@@ -823,7 +1071,7 @@ public class ElementTag implements ObjectTag {
         // Returns whether the element contains any of a list of specified elements, case sensitive.
         // -->
         registerTag("contains_any_case_sensitive_text", (attribute, object) -> {
-            String element = object.element;
+            String element = object.asString();
             ListTag list = attribute.contextAsType(1, ListTag.class);
             for (String list_element : list) {
                 if (element.contains(list_element)) {
@@ -842,7 +1090,7 @@ public class ElementTag implements ObjectTag {
         // Returns whether the element contains any of a list of specified elements, case insensitive.
         // -->
         registerTag("contains_any_text", (attribute, object) -> {
-            String element = object.element;
+            String element = object.asString();
             ListTag list = ListTag.valueOf(CoreUtilities.toLowerCase(attribute.getContext(1)), attribute.context);
             String ellow = CoreUtilities.toLowerCase(element);
             for (String list_element : list) {
@@ -862,7 +1110,7 @@ public class ElementTag implements ObjectTag {
         // Returns whether the element contains a specified element, case sensitive.
         // -->
         registerTag("contains_case_sensitive_text", (attribute, object) -> {
-            String element = object.element;
+            String element = object.asString();
             String contains = attribute.getContext(1);
             if (element.contains(contains)) {
                 return new ElementTag("true");
@@ -882,7 +1130,7 @@ public class ElementTag implements ObjectTag {
         // regular expression by prefixing the element with regex:
         // -->
         registerTag("contains_text", (attribute, object) -> {
-            String element = object.element;
+            String element = object.asString();
             String contains = attribute.getContext(1);
             if (CoreUtilities.toLowerCase(contains).startsWith("regex:")) {
                 if (Pattern.compile(contains.substring(("regex:").length()), Pattern.CASE_INSENSITIVE).matcher(element).find()) {
@@ -909,7 +1157,7 @@ public class ElementTag implements ObjectTag {
         // Returns whether the element contains all of the specified strings, case insensitive.
         // -->
         registerTag("contains_all_text", (attribute, object) -> {
-            String element = object.element;
+            String element = object.asString();
             ListTag list = ListTag.valueOf(CoreUtilities.toLowerCase(attribute.getContext(1)), attribute.context);
             String ellow = CoreUtilities.toLowerCase(element);
             for (String list_element : list) {
@@ -929,7 +1177,7 @@ public class ElementTag implements ObjectTag {
         // Returns whether the element contains all of the specified strings, case sensitive.
         // -->
         registerTag("contains_all_case_sensitive_text", (attribute, object) -> {
-            String element = object.element;
+            String element = object.asString();
             ListTag list = attribute.contextAsType(1, ListTag.class);
             for (String list_element : list) {
                 if (!element.contains(list_element)) {
@@ -948,7 +1196,7 @@ public class ElementTag implements ObjectTag {
         // Returns whether the element ends with a specified element.
         // -->
         registerTag("ends_with", (attribute, object) -> {
-            return new ElementTag(CoreUtilities.toLowerCase(object.element).
+            return new ElementTag(CoreUtilities.toLowerCase(object.asString()).
                     endsWith(CoreUtilities.toLowerCase(attribute.getContext(1))));
         }, "endswith");
 
@@ -963,7 +1211,7 @@ public class ElementTag implements ObjectTag {
             if (!attribute.hasContext(1)) {
                 return null;
             }
-            return new ElementTag(object.element.equals(attribute.getContext(1)));
+            return new ElementTag(object.asString().equals(attribute.getContext(1)));
         }, "equals_with_case");
 
         // <--[tag]
@@ -977,7 +1225,7 @@ public class ElementTag implements ObjectTag {
             if (!attribute.hasContext(1)) {
                 return null;
             }
-            return new ElementTag(ScriptEvent.createMatcher(attribute.getContext(1)).doesMatch(object.element));
+            return new ElementTag(ScriptEvent.createMatcher(attribute.getContext(1)).doesMatch(object.asString()));
         }, "advanced_matches");
 
         // <--[tag]
@@ -991,7 +1239,7 @@ public class ElementTag implements ObjectTag {
             if (!attribute.hasContext(1)) {
                 return null;
             }
-            return new ElementTag(object.element.matches(attribute.getContext(1)));
+            return new ElementTag(object.asString().matches(attribute.getContext(1)));
         }, "matches");
 
         // <--[tag]
@@ -1008,7 +1256,7 @@ public class ElementTag implements ObjectTag {
                 return null;
             }
             String regex = attribute.getContext(1);
-            Matcher m = Pattern.compile(regex).matcher(object.element);
+            Matcher m = Pattern.compile(regex).matcher(object.asString());
             if (!m.matches()) {
                 return null;
             }
@@ -1031,7 +1279,7 @@ public class ElementTag implements ObjectTag {
         // Returns the length of the element.
         // -->
         registerTag("length", (attribute, object) -> {
-            return new ElementTag(object.element.length());
+            return new ElementTag(object.asString().length());
         });
 
         // <--[tag]
@@ -1043,7 +1291,7 @@ public class ElementTag implements ObjectTag {
         // IE, true returns false and false returns true.
         // -->
         registerTag("not", (attribute, object) -> {
-            return new ElementTag(!object.element.equalsIgnoreCase("true"));
+            return new ElementTag(!object.asString().equalsIgnoreCase("true"));
         });
 
         // <--[tag]
@@ -1054,7 +1302,7 @@ public class ElementTag implements ObjectTag {
         // Returns whether both the element and the second element are true.
         // -->
         registerTag("and", (attribute, object) -> {
-            return new ElementTag(object.element.equalsIgnoreCase("true") && attribute.getContext(1).equalsIgnoreCase("true"));
+            return new ElementTag(object.asString().equalsIgnoreCase("true") && attribute.getContext(1).equalsIgnoreCase("true"));
         });
 
         // <--[tag]
@@ -1065,7 +1313,7 @@ public class ElementTag implements ObjectTag {
         // Returns whether either the element or the second element are true.
         // -->
         registerTag("or", (attribute, object) -> {
-            return new ElementTag(object.element.equalsIgnoreCase("true") || attribute.getContext(1).equalsIgnoreCase("true"));
+            return new ElementTag(object.asString().equalsIgnoreCase("true") || attribute.getContext(1).equalsIgnoreCase("true"));
         });
 
         // <--[tag]
@@ -1076,7 +1324,7 @@ public class ElementTag implements ObjectTag {
         // Returns whether the element and the second element are true and false (exclusive or).
         // -->
         registerTag("xor", (attribute, object) -> {
-            return new ElementTag(object.element.equalsIgnoreCase("true") != attribute.getContext(1).equalsIgnoreCase("true"));
+            return new ElementTag(object.asString().equalsIgnoreCase("true") != attribute.getContext(1).equalsIgnoreCase("true"));
         });
 
         // <--[tag]
@@ -1087,7 +1335,7 @@ public class ElementTag implements ObjectTag {
         // Returns whether the element starts with a specified element.
         // -->
         registerTag("starts_with", (attribute, object) -> {
-            return new ElementTag(CoreUtilities.toLowerCase(object.element).startsWith(CoreUtilities.toLowerCase(attribute.getContext(1))));
+            return new ElementTag(CoreUtilities.toLowerCase(object.asString()).startsWith(CoreUtilities.toLowerCase(attribute.getContext(1))));
         }, "startswith");
 
         // <--[tag]
@@ -1103,7 +1351,7 @@ public class ElementTag implements ObjectTag {
                 attribute.echoError("The tag ElementTag.index_of[...] must have a value.");
                 return null;
             }
-            return new ElementTag(CoreUtilities.toLowerCase(object.element)
+            return new ElementTag(CoreUtilities.toLowerCase(object.asString())
                     .indexOf(CoreUtilities.toLowerCase(attribute.getContext(1))) + 1);
         });
 
@@ -1120,7 +1368,7 @@ public class ElementTag implements ObjectTag {
                 attribute.echoError("The tag ElementTag.last_index_of[...] must have a value.");
                 return null;
             }
-            return new ElementTag(CoreUtilities.toLowerCase(object.element)
+            return new ElementTag(CoreUtilities.toLowerCase(object.asString())
                     .lastIndexOf(CoreUtilities.toLowerCase(attribute.getContext(1))) + 1);
         });
 
@@ -1138,11 +1386,11 @@ public class ElementTag implements ObjectTag {
                 return null;
             }
             int index = attribute.getIntContext(1) - 1;
-            if (index < 0 || index >= object.element.length()) {
+            if (index < 0 || index >= object.asString().length()) {
                 return null;
             }
             else {
-                return new ElementTag(String.valueOf(object.element.charAt(index)));
+                return new ElementTag(String.valueOf(object.asString().charAt(index)));
             }
         });
 
@@ -1165,9 +1413,9 @@ public class ElementTag implements ObjectTag {
                 return null;
             }
             int repeatTimes = attribute.getIntContext(1);
-            StringBuilder result = new StringBuilder(object.element.length() * repeatTimes);
+            StringBuilder result = new StringBuilder(object.asString().length() * repeatTimes);
             for (int i = 0; i < repeatTimes; i++) {
-                result.append(object.element);
+                result.append(object.asString());
             }
             return new ElementTag(result.toString());
         });
@@ -1208,9 +1456,9 @@ public class ElementTag implements ObjectTag {
                 return null;
             }
             String delimiter = attribute.getContext(1);
-            if (CoreUtilities.toLowerCase(object.element).contains(CoreUtilities.toLowerCase(delimiter))) {
-                return new ElementTag(object.element.substring
-                        (CoreUtilities.toLowerCase(object.element).lastIndexOf(CoreUtilities.toLowerCase(delimiter)) + delimiter.length()));
+            if (CoreUtilities.toLowerCase(object.asString()).contains(CoreUtilities.toLowerCase(delimiter))) {
+                return new ElementTag(object.asString().substring
+                        (CoreUtilities.toLowerCase(object.asString()).lastIndexOf(CoreUtilities.toLowerCase(delimiter)) + delimiter.length()));
             }
             else {
                 return new ElementTag("");
@@ -1231,9 +1479,9 @@ public class ElementTag implements ObjectTag {
                 return null;
             }
             String delimiter = attribute.getContext(1);
-            if (CoreUtilities.toLowerCase(object.element).contains(CoreUtilities.toLowerCase(delimiter))) {
-                return new ElementTag(object.element.substring
-                        (CoreUtilities.toLowerCase(object.element).indexOf(CoreUtilities.toLowerCase(delimiter)) + delimiter.length()));
+            if (CoreUtilities.toLowerCase(object.asString()).contains(CoreUtilities.toLowerCase(delimiter))) {
+                return new ElementTag(object.asString().substring
+                        (CoreUtilities.toLowerCase(object.asString()).indexOf(CoreUtilities.toLowerCase(delimiter)) + delimiter.length()));
             }
             else {
                 return new ElementTag("");
@@ -1254,12 +1502,12 @@ public class ElementTag implements ObjectTag {
                 return null;
             }
             String delimiter = attribute.getContext(1);
-            if (CoreUtilities.toLowerCase(object.element).contains(CoreUtilities.toLowerCase(delimiter))) {
-                return new ElementTag(object.element.substring
-                        (0, CoreUtilities.toLowerCase(object.element).lastIndexOf(CoreUtilities.toLowerCase(delimiter))));
+            if (CoreUtilities.toLowerCase(object.asString()).contains(CoreUtilities.toLowerCase(delimiter))) {
+                return new ElementTag(object.asString().substring
+                        (0, CoreUtilities.toLowerCase(object.asString()).lastIndexOf(CoreUtilities.toLowerCase(delimiter))));
             }
             else {
-                return new ElementTag(object.element);
+                return new ElementTag(object.asString());
             }
         });
 
@@ -1277,12 +1525,12 @@ public class ElementTag implements ObjectTag {
                 return null;
             }
             String delimiter = attribute.getContext(1);
-            if (CoreUtilities.toLowerCase(object.element).contains(CoreUtilities.toLowerCase(delimiter))) {
-                return new ElementTag(object.element.substring
-                        (0, CoreUtilities.toLowerCase(object.element).indexOf(CoreUtilities.toLowerCase(delimiter))));
+            if (CoreUtilities.toLowerCase(object.asString()).contains(CoreUtilities.toLowerCase(delimiter))) {
+                return new ElementTag(object.asString().substring
+                        (0, CoreUtilities.toLowerCase(object.asString()).indexOf(CoreUtilities.toLowerCase(delimiter))));
             }
             else {
-                return new ElementTag(object.element);
+                return new ElementTag(object.asString());
             }
         });
 
@@ -1322,13 +1570,13 @@ public class ElementTag implements ObjectTag {
             }
 
             if (replace.startsWith("regex:")) {
-                return new ElementTag(object.element.replaceAll(replace.substring("regex:".length()), replacement));
+                return new ElementTag(object.asString().replaceAll(replace.substring("regex:".length()), replacement));
             }
             if (replace.startsWith("firstregex:")) {
-                return new ElementTag(object.element.replaceFirst(replace.substring("firstregex:".length()), replacement));
+                return new ElementTag(object.asString().replaceFirst(replace.substring("firstregex:".length()), replacement));
             }
             else {
-                return new ElementTag(object.element.replaceAll("(?i)" + Pattern.quote(replace), Matcher.quoteReplacement(replacement)));
+                return new ElementTag(object.asString().replaceAll("(?i)" + Pattern.quote(replace), Matcher.quoteReplacement(replacement)));
             }
         });
         tagProcessor.registerFutureTagDeprecation("replace_text", "replace");
@@ -1349,15 +1597,15 @@ public class ElementTag implements ObjectTag {
                     DecimalFormat format = new DecimalFormat(attribute.getContext(1), CoreUtilities.decimalFormatSymbols);
                     return new ElementTag(format.format(object.asBigDecimal()));
                 }
-                int decimal = object.element.indexOf('.');
+                int decimal = object.asString().indexOf('.');
                 String shortelement;
                 String afterdecimal;
                 if (decimal != -1) {
-                    shortelement = object.element.substring(0, decimal);
-                    afterdecimal = object.element.substring(decimal);
+                    shortelement = object.asString().substring(0, decimal);
+                    afterdecimal = object.asString().substring(decimal);
                 }
                 else {
-                    shortelement = object.element;
+                    shortelement = object.asString();
                     afterdecimal = "";
                 }
                 String intform = Long.valueOf(shortelement.replace("%", "")).toString();
@@ -1386,8 +1634,8 @@ public class ElementTag implements ObjectTag {
         // -->
         registerTag("to_list", (attribute, object) -> {
             ListTag list = new ListTag();
-            for (int i = 0; i < object.element.length(); i++) {
-                list.add(String.valueOf(object.element.charAt(i)));
+            for (int i = 0; i < object.asString().length(); i++) {
+                list.add(String.valueOf(object.asString().charAt(i)));
             }
             return list;
         });
@@ -1400,7 +1648,7 @@ public class ElementTag implements ObjectTag {
         // Returns the value of an element minus any leading or trailing whitespace.
         // -->
         registerTag("trim", (attribute, object) -> {
-            return new ElementTag(object.element.trim());
+            return new ElementTag(object.asString().trim());
         });
 
         // <--[tag]
@@ -1414,7 +1662,7 @@ public class ElementTag implements ObjectTag {
         // -->
         registerTag("split_lines", (attribute, object) -> {
             int characterCount = attribute.getIntContext(1);
-            return new ElementTag(CoreUtilities.splitLinesByCharacterCount(object.element, characterCount));
+            return new ElementTag(CoreUtilities.splitLinesByCharacterCount(object.asString(), characterCount));
         });
 
         // <--[tag]
@@ -1426,7 +1674,7 @@ public class ElementTag implements ObjectTag {
         // Numbers and symbols will return false.
         // -->
         registerTag("is_uppercase", (attribute, object) -> {
-            for (char c : object.element.toCharArray()) {
+            for (char c : object.asString().toCharArray()) {
                 if (!Character.isUpperCase(c)) {
                     return new ElementTag(false);
                 }
@@ -1443,7 +1691,7 @@ public class ElementTag implements ObjectTag {
         // Numbers and symbols will return false.
         // -->
         registerTag("is_lowercase", (attribute, object) -> {
-            for (char c : object.element.toCharArray()) {
+            for (char c : object.asString().toCharArray()) {
                 if (!Character.isLowerCase(c)) {
                     return new ElementTag(false);
                 }
@@ -1459,7 +1707,7 @@ public class ElementTag implements ObjectTag {
         // Returns the value of an element in all uppercase letters.
         // -->
         registerTag("to_uppercase", (attribute, object) -> {
-            return new ElementTag(object.element.toUpperCase());
+            return new ElementTag(object.asString().toUpperCase());
         }, "upper");
 
         // <--[tag]
@@ -1471,7 +1719,7 @@ public class ElementTag implements ObjectTag {
         // -->
         registerTag("to_lowercase", (attribute, object) -> {
             // Intentionally do not use CoreUtilities here as users may expect multi-language compat.
-            return new ElementTag(object.element.toLowerCase());
+            return new ElementTag(object.asString().toLowerCase());
         }, "lower");
 
         // <--[tag]
@@ -1482,16 +1730,16 @@ public class ElementTag implements ObjectTag {
         // Returns The Value Of An ElementTag In Title Case.
         // -->
         registerTag("to_titlecase", (attribute, object) -> {
-            if (object.element.length() == 0) {
+            if (object.asString().length() == 0) {
                 return new ElementTag("");
             }
-            StringBuilder TitleCase = new StringBuilder(object.element.length());
-            String Upper = object.element.toUpperCase();
+            StringBuilder TitleCase = new StringBuilder(object.asString().length());
+            String Upper = object.asString().toUpperCase();
             // Intentionally do not use CoreUtilities here as users may expect multi-language compat.
-            String Lower = object.element.toLowerCase();
+            String Lower = object.asString().toLowerCase();
             TitleCase.append(Upper.charAt(0));
-            for (int i = 1; i < object.element.length(); i++) {
-                if (object.element.charAt(i - 1) == ' ') {
+            for (int i = 1; i < object.asString().length(); i++) {
+                if (object.asString().charAt(i - 1) == ' ') {
                     TitleCase.append(Upper.charAt(i));
                 }
                 else {
@@ -1509,10 +1757,10 @@ public class ElementTag implements ObjectTag {
         // Returns the value in sentence case (the first letter capitalized, the rest lowercase).
         // -->
         registerTag("to_sentence_case", (attribute, object) -> {
-            if (object.element.length() == 0) {
+            if (object.asString().length() == 0) {
                 return new ElementTag("");
             }
-            return new ElementTag(Character.toUpperCase(object.element.charAt(0)) + object.element.substring(1).toLowerCase());
+            return new ElementTag(Character.toUpperCase(object.asString().charAt(0)) + object.asString().substring(1).toLowerCase());
         });
 
         // <--[tag]
@@ -1535,21 +1783,21 @@ public class ElementTag implements ObjectTag {
                 ending_index = new ElementTag(attribute.getContext(1).split(",")[1]).asInt();
             }
             else {
-                ending_index = object.element.length();
+                ending_index = object.asString().length();
             }
             if (beginning_index < 0) {
                 beginning_index = 0;
             }
-            if (beginning_index > object.element.length()) {
-                beginning_index = object.element.length();
+            if (beginning_index > object.asString().length()) {
+                beginning_index = object.asString().length();
             }
-            if (ending_index > object.element.length()) {
-                ending_index = object.element.length();
+            if (ending_index > object.asString().length()) {
+                ending_index = object.asString().length();
             }
             if (ending_index < beginning_index) {
                 ending_index = beginning_index;
             }
-            return new ElementTag(object.element.substring(beginning_index, ending_index));
+            return new ElementTag(object.asString().substring(beginning_index, ending_index));
         }, "substr");
 
         // <--[tag]
@@ -1561,7 +1809,7 @@ public class ElementTag implements ObjectTag {
         // That is, split by spaces but respecting the use of "quotes" to contain spaces within a single argument.
         // -->
         registerTag("split_args", (attribute, object) -> {
-            return new ListTag(Arrays.asList(ArgumentHelper.buildArgs(object.element)));
+            return new ListTag(Arrays.asList(ArgumentHelper.buildArgs(object.asString())));
         });
 
         // <--[tag]
@@ -1597,10 +1845,10 @@ public class ElementTag implements ObjectTag {
             if (attribute.startsWith("limit", 2)) {
                 int limit = (attribute.hasContext(2) ? attribute.getIntContext(2) : 1);
                 attribute.fulfill(1);
-                split = object.element.split(split_string, limit);
+                split = object.asString().split(split_string, limit);
             }
             else {
-                split = object.element.split(split_string);
+                split = object.asString().split(split_string);
             }
             return new ListTag(Arrays.asList(split));
         });
@@ -1634,11 +1882,11 @@ public class ElementTag implements ObjectTag {
                 attribute.fulfill(1);
             }
             StringBuilder padded = new StringBuilder();
-            length -= object.element.length();
+            length -= object.asString().length();
             while (padded.length() < length) {
                 padded.append(with);
             }
-            padded.append(object.element);
+            padded.append(object.asString());
             return new ElementTag(padded.toString());
         });
 
@@ -1670,7 +1918,7 @@ public class ElementTag implements ObjectTag {
                 with = String.valueOf(attribute.getContext(2).charAt(0));
                 attribute.fulfill(1);
             }
-            StringBuilder padded = new StringBuilder(object.element);
+            StringBuilder padded = new StringBuilder(object.asString());
             while (padded.length() < length) {
                 padded.append(with);
             }
@@ -2284,7 +2532,7 @@ public class ElementTag implements ObjectTag {
         // Encodes the element using Base64 encoding.
         // -->
         registerTag("base64_encode", (attribute, object) -> {
-            String encoded = Base64.getEncoder().encodeToString(object.element.getBytes());
+            String encoded = Base64.getEncoder().encodeToString(object.asString().getBytes());
             return new ElementTag(encoded);
         });
 
@@ -2296,7 +2544,7 @@ public class ElementTag implements ObjectTag {
         // Decodes the element using Base64 encoding. Must be valid Base64 input.
         // -->
         registerTag("base64_decode", (attribute, object) -> {
-            String decoded = new String(Base64.getDecoder().decode(object.element));
+            String decoded = new String(Base64.getDecoder().decode(object.asString()));
             return new ElementTag(decoded);
         });
 
@@ -2308,7 +2556,7 @@ public class ElementTag implements ObjectTag {
         // Encodes the element using hexadecimal encoding.
         // -->
         registerTag("hex_encode", (attribute, object) -> {
-            String encoded = CoreUtilities.hexEncode(object.element.getBytes());
+            String encoded = CoreUtilities.hexEncode(object.asString().getBytes());
             return new ElementTag(encoded);
         });
 
@@ -2320,7 +2568,7 @@ public class ElementTag implements ObjectTag {
         // Decodes the element using hexadecimal encoding. Must be valid hexadecimal input.
         // -->
         registerTag("hex_decode", (attribute, object) -> {
-            String decoded = new String(CoreUtilities.hexDecode(object.element));
+            String decoded = new String(CoreUtilities.hexDecode(object.asString()));
             return new ElementTag(decoded);
         });
 
@@ -2333,7 +2581,7 @@ public class ElementTag implements ObjectTag {
         // -->
         registerTag("url_encode", (attribute, object) -> {
             try {
-                String encoded = URLEncoder.encode(object.element, "UTF-8");
+                String encoded = URLEncoder.encode(object.asString(), "UTF-8");
                 return new ElementTag(encoded);
             }
             catch (Exception e) {
@@ -2351,7 +2599,7 @@ public class ElementTag implements ObjectTag {
         // -->
         registerTag("url_decode", (attribute, object) -> {
             try {
-                String decoded = URLDecoder.decode(object.element, "UTF-8");
+                String decoded = URLDecoder.decode(object.asString(), "UTF-8");
                 return new ElementTag(decoded);
             }
             catch (Exception e) {
@@ -2378,7 +2626,7 @@ public class ElementTag implements ObjectTag {
                 attribute.echoError("The tag ElementTag.matches_character_set[...] must have a value.");
                 return null;
             }
-            return new ElementTag(new AsciiMatcher(attribute.getContext(1)).isOnlyMatches(object.element));
+            return new ElementTag(new AsciiMatcher(attribute.getContext(1)).isOnlyMatches(object.asString()));
         });
 
         // <--[tag]
@@ -2399,7 +2647,7 @@ public class ElementTag implements ObjectTag {
                 attribute.echoError("The tag ElementTag.trim_to_character_set[...] must have a value.");
                 return null;
             }
-            return new ElementTag(new AsciiMatcher(attribute.getContext(1)).trimToMatches(object.element));
+            return new ElementTag(new AsciiMatcher(attribute.getContext(1)).trimToMatches(object.asString()));
         });
 
         // <--[tag]
@@ -2443,12 +2691,12 @@ public class ElementTag implements ObjectTag {
             return false;
         }
         ElementTag other = (ElementTag) o;
-        return element.equals(other.element);
+        return asString().equals(other.asString());
     }
 
     @Override
     public int hashCode() {
-        return element.hashCode();
+        return asString().hashCode();
     }
 
     public static class FailedObjectTag implements ObjectTag {
@@ -16,6 +16,7 @@ import com.denizenscript.denizencore.utilities.Deprecations;
 import com.denizenscript.denizencore.utilities.NaturalOrderComparator;
 import com.denizenscript.denizencore.utilities.debugging.Debuggable;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
+import com.denizenscript.denizencore.utilities.text.JsonWriter;
 import com.denizenscript.denizencore.DenizenCore;
 import com.denizenscript.denizencore.tags.Attribute;
 import com.denizenscript.denizencore.tags.TagContext;
@@ -24,6 +25,10 @@ import com.denizenscript.denizencore.tags.core.EscapeTagBase;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 import java.util.regex.Pattern;
 
 public class ListTag implements List<String>, ObjectTag {
@@ -66,8 +71,931 @@ public class ListTag implements List<String>, ObjectTag {
         return value.replace("&pipe", "|").replace("&amp", "&");
     }
 
+    /**
+     * An ArrayList that keeps a version number, which changes whenever the list is modified in any way.
+     * Used to know when caches built from a list's contents are out of date.
+     * It may also hold ObjectFetcher.PendingObject entries from parsing, which are resolved when read by index,
+     * or all at once before any other kind of access (iteration, searching, copying, etc).
+     * Copying one ObjectList into another shares the same backing array until either list is changed, and the most recently
+     * grown list sharing an array can keep appending to it in place, so copy-then-append (as flag actions do) doesn't copy the whole list.
+     * The ArrayList parent storage is never used. When serialized, the list is written as a plain ArrayList copy (see 'writeReplace').
+     */
+    public static class ObjectList extends ArrayList<ObjectTag> {
+
+        private static final long serialVersionUID = 7269114032594410316L;
+
+        /**
+         * A backing array that may be shared by several ObjectLists.
+         */
+        public static final class SharedArray {
+
+            public ObjectTag[] data;
+
+            // How many slots any list has filled, so a list at exactly this size can append without affecting the others.
+            public int used;
+
+            // How many lists use this array. Lists that are dropped without changing never release it, so this can only overestimate.
+            public int owners = 1;
+
+            // Set once a snapshot shares this array, after which no list may append to it in place, as the snapshot may be read from another thread meanwhile.
+            public boolean frozen;
+
+            public SharedArray(ObjectTag[] data, int used) {
+                this.data = data;
+                this.used = used;
+            }
+        }
+
+        private static final ObjectTag[] EMPTY = new ObjectTag[0];
+
+        private transient SharedArray array;
+
+        private transient int size = 0;
+
+        private transient int version = 0;
+
+        private transient int pendingCount = 0;
+
+        public ObjectList() {
+            array = new SharedArray(EMPTY, 0);
+        }
+
+        public ObjectList(int capacity) {
+            if (capacity < 0) {
+                throw new IllegalArgumentException("Illegal capacity: " + capacity);
+            }
+            array = new SharedArray(capacity == 0 ? EMPTY : new ObjectTag[capacity], 0);
+        }
+
+        public ObjectList(Collection<? extends ObjectTag> objects) {
+            if (objects instanceof ObjectList) {
+                ObjectList other = (ObjectList) objects;
+                array = other.array;
+                array.owners++;
+                size = other.size;
+                pendingCount = other.pendingCount;
+                return;
+            }
+            Object[] values = objects.toArray();
+            ObjectTag[] data = new ObjectTag[values.length];
+            for (int i = 0; i < values.length; i++) {
+                data[i] = (ObjectTag) values[i];
+            }
+            array = new SharedArray(data, data.length);
+            size = data.length;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        /**
+         * Returns whether this list's backing array is (or may be) used by another list too.
+         */
+        public boolean isShared() {
+            return array.owners > 1;
+        }
+
+        private void changed() {
+            version++;
+            modCount++;
+        }
+
+        private void detach(int capacity) {
+            ObjectTag[] data = new ObjectTag[capacity];
+            System.arraycopy(array.data, 0, data, 0, size);
+            array.owners--;
+            array = new SharedArray(data, size);
+        }
+
+        /**
+         * Makes sure this list has its own backing array with room for the given size, for changes other than appending.
+         */
+        private void prepareWrite(int minCapacity) {
+            if (array.owners > 1) {
+                detach(Math.max(minCapacity, size));
+            }
+            else if (minCapacity > array.data.length) {
+                array.data = Arrays.copyOf(array.data, newCapacity(minCapacity));
+            }
+        }
+
+        /**
+         * Makes sure this list can write the given number of new entries directly past its end.
+         */
+        private void prepareAppend(int count) {
+            int minCapacity = size + count;
+            if (array.owners > 1) {
+                if (size == array.used && minCapacity <= array.data.length && !array.frozen) {
+                    array.used = minCapacity;
+                    return;
+                }
+                detach(newCapacity(minCapacity));
+            }
+            else if (minCapacity > array.data.length) {
+                array.data = Arrays.copyOf(array.data, newCapacity(minCapacity));
+            }
+            array.used = minCapacity;
+        }
+
+        private int newCapacity(int minCapacity) {
+            int capacity = array.data.length + (array.data.length >> 1);
+            if (capacity < minCapacity) {
+                capacity = Math.max(minCapacity, 10);
+            }
+            return capacity;
+        }
+
+        private void rangeCheck(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+        }
+
+        private void rangeCheckForAdd(int index) {
+            if (index < 0 || index > size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+        }
+
+        private ObjectTag resolveAt(int index, ObjectTag pending) {
+            ObjectTag resolved = ((ObjectFetcher.PendingObject) pending).resolve();
+            pendingCount--;
+            // Other lists sharing the array would resolve to the same thing, so this is safe to write even when shared.
+            array.data[index] = resolved;
+            return resolved;
+        }
+
+        /**
+         * Prepares this list's array to be shared with a snapshot that another thread may read: resolves all pending entries, and stops any list from writing to the array in place.
+         */
+        public void freezeForSnapshot() {
+            resolveAll();
+            array.frozen = true;
+        }
+
+        public void resolveAll() {
+            if (pendingCount <= 0) {
+                return;
+            }
+            ObjectTag[] data = array.data;
+            for (int i = 0; i < size; i++) {
+                ObjectTag value = data[i];
+                if (value instanceof ObjectFetcher.PendingObject) {
+                    resolveAt(i, value);
+                }
+            }
+            pendingCount = 0;
+        }
+
+        private static ObjectTag resolved(ObjectTag value) {
+            if (value instanceof ObjectFetcher.PendingObject) {
+                return ((ObjectFetcher.PendingObject) value).resolve();
+            }
+            return value;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public ObjectTag get(int index) {
+            rangeCheck(index);
+            ObjectTag value = array.data[index];
+            if (pendingCount > 0 && value instanceof ObjectFetcher.PendingObject) {
+                return resolveAt(index, value);
+            }
+            return value;
+        }
+
+        @Override
+        public ObjectTag set(int index, ObjectTag element) {
+            rangeCheck(index);
+            prepareWrite(size);
+            ObjectTag previous = array.data[index];
+            if (previous instanceof ObjectFetcher.PendingObject) {
+                pendingCount--;
+            }
+            if (element instanceof ObjectFetcher.PendingObject) {
+                pendingCount++;
+            }
+            array.data[index] = element;
+            changed();
+            return resolved(previous);
+        }
+
+        @Override
+        public boolean add(ObjectTag element) {
+            prepareAppend(1);
+            if (element instanceof ObjectFetcher.PendingObject) {
+                pendingCount++;
+            }
+            array.data[size++] = element;
+            changed();
+            return true;
+        }
+
+        @Override
+        public void add(int index, ObjectTag element) {
+            if (index == size) {
+                add(element);
+                return;
+            }
+            rangeCheckForAdd(index);
+            prepareWrite(size + 1);
+            ObjectTag[] data = array.data;
+            System.arraycopy(data, index, data, index + 1, size - index);
+            data[index] = element;
+            size++;
+            array.used = size;
+            if (element instanceof ObjectFetcher.PendingObject) {
+                pendingCount++;
+            }
+            changed();
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends ObjectTag> c) {
+            Object[] values = c.toArray();
+            if (values.length == 0) {
+                return false;
+            }
+            prepareAppend(values.length);
+            ObjectTag[] data = array.data;
+            for (Object value : values) {
+                data[size++] = (ObjectTag) value;
+            }
+            changed();
+            return true;
+        }
+
+        @Override
+        public boolean addAll(int index, Collection<? extends ObjectTag> c) {
+            if (index == size) {
+                return addAll(c);
+            }
+            rangeCheckForAdd(index);
+            Object[] values = c.toArray();
+            if (values.length == 0) {
+                return false;
+            }
+            prepareWrite(size + values.length);
+            ObjectTag[] data = array.data;
+            System.arraycopy(data, index, data, index + values.length, size - index);
+            for (int i = 0; i < values.length; i++) {
+                data[index + i] = (ObjectTag) values[i];
+            }
+            size += values.length;
+            array.used = size;
+            changed();
+            return true;
+        }
+
+        @Override
+        public ObjectTag remove(int index) {
+            rangeCheck(index);
+            prepareWrite(size);
+            ObjectTag[] data = array.data;
+            ObjectTag removed = data[index];
+            System.arraycopy(data, index + 1, data, index, size - index - 1);
+            data[--size] = null;
+            array.used = size;
+            if (removed instanceof ObjectFetcher.PendingObject) {
+                pendingCount--;
+            }
+            changed();
+            return resolved(removed);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            int index = indexOf(o);
+            if (index == -1) {
+                return false;
+            }
+            remove(index);
+            return true;
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+                throw new IndexOutOfBoundsException("From: " + fromIndex + ", To: " + toIndex + ", Size: " + size);
+            }
+            if (fromIndex == toIndex) {
+                return;
+            }
+            prepareWrite(size);
+            ObjectTag[] data = array.data;
+            System.arraycopy(data, toIndex, data, fromIndex, size - toIndex);
+            int newSize = size - (toIndex - fromIndex);
+            Arrays.fill(data, newSize, size, null);
+            size = newSize;
+            array.used = size;
+            changed();
+        }
+
+        @Override
+        public void clear() {
+            if (array.owners > 1) {
+                array.owners--;
+                array = new SharedArray(EMPTY, 0);
+            }
+            else {
+                Arrays.fill(array.data, 0, size, null);
+                array.used = 0;
+            }
+            size = 0;
+            pendingCount = 0;
+            changed();
+        }
+
+        @Override
+        public void ensureCapacity(int minCapacity) {
+            if (minCapacity > array.data.length && array.owners == 1) {
+                array.data = Arrays.copyOf(array.data, minCapacity);
+            }
+        }
+
+        @Override
+        public void trimToSize() {
+            if (size < array.data.length && array.owners == 1) {
+                array.data = size == 0 ? EMPTY : Arrays.copyOf(array.data, size);
+            }
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            resolveAll();
+            ObjectTag[] data = array.data;
+            for (int i = 0; i < size; i++) {
+                if (Objects.equals(o, data[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            resolveAll();
+            ObjectTag[] data = array.data;
+            for (int i = size - 1; i >= 0; i--) {
+                if (Objects.equals(o, data[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return indexOf(o) != -1;
+        }
+
+        @Override
+        public Object clone() {
+            return new ObjectList(this);
+        }
+
+        // The inherited serialization would write the unused (empty) parent storage, so write a plain copy of the entries instead.
+        private Object writeReplace() {
+            return new ArrayList<>(this);
+        }
+
+        @Override
+        public Object[] toArray() {
+            resolveAll();
+            return Arrays.copyOf(array.data, size, Object[].class);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T[] toArray(T[] a) {
+            resolveAll();
+            if (a.length < size) {
+                return (T[]) Arrays.copyOf(array.data, size, a.getClass());
+            }
+            System.arraycopy(array.data, 0, a, 0, size);
+            if (a.length > size) {
+                a[size] = null;
+            }
+            return a;
+        }
+
+        @Override
+        public boolean removeAll(Collection<?> c) {
+            Objects.requireNonNull(c);
+            return removeIf(c::contains);
+        }
+
+        @Override
+        public boolean retainAll(Collection<?> c) {
+            Objects.requireNonNull(c);
+            return removeIf(o -> !c.contains(o));
+        }
+
+        @Override
+        public boolean removeIf(Predicate<? super ObjectTag> filter) {
+            Objects.requireNonNull(filter);
+            resolveAll();
+            int kept = 0;
+            while (kept < size && !filter.test(array.data[kept])) {
+                kept++;
+            }
+            if (kept == size) {
+                return false;
+            }
+            prepareWrite(size);
+            ObjectTag[] data = array.data;
+            for (int i = kept + 1; i < size; i++) {
+                if (!filter.test(data[i])) {
+                    data[kept++] = data[i];
+                }
+            }
+            Arrays.fill(data, kept, size, null);
+            size = kept;
+            array.used = size;
+            changed();
+            return true;
+        }
+
+        @Override
+        public void replaceAll(UnaryOperator<ObjectTag> operator) {
+            Objects.requireNonNull(operator);
+            resolveAll();
+            prepareWrite(size);
+            int expectedVersion = version;
+            ObjectTag[] data = array.data;
+            for (int i = 0; i < size; i++) {
+                data[i] = operator.apply(data[i]);
+                if (version != expectedVersion) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+            pendingCount = 0;
+            for (int i = 0; i < size; i++) {
+                if (data[i] instanceof ObjectFetcher.PendingObject) {
+                    pendingCount++;
+                }
+            }
+            changed();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void sort(Comparator<? super ObjectTag> c) {
+            resolveAll();
+            prepareWrite(size);
+            int expectedVersion = version;
+            Arrays.sort(array.data, 0, size, (Comparator<Object>) c);
+            if (version != expectedVersion) {
+                throw new ConcurrentModificationException();
+            }
+            changed();
+        }
+
+        @Override
+        public void forEach(Consumer<? super ObjectTag> action) {
+            Objects.requireNonNull(action);
+            resolveAll();
+            int expectedVersion = version;
+            ObjectTag[] data = array.data;
+            int count = size;
+            for (int i = 0; i < count && version == expectedVersion; i++) {
+                action.accept(data[i]);
+            }
+            if (version != expectedVersion) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public Iterator<ObjectTag> iterator() {
+            return listIterator(0);
+        }
+
+        @Override
+        public ListIterator<ObjectTag> listIterator() {
+            return listIterator(0);
+        }
+
+        @Override
+        public ListIterator<ObjectTag> listIterator(int index) {
+            rangeCheckForAdd(index);
+            resolveAll();
+            return new Itr(index);
+        }
+
+        private class Itr implements ListIterator<ObjectTag> {
+
+            int cursor;
+
+            int lastReturned = -1;
+
+            int expectedVersion = version;
+
+            Itr(int cursor) {
+                this.cursor = cursor;
+            }
+
+            void checkVersion() {
+                if (version != expectedVersion) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return cursor != size;
+            }
+
+            @Override
+            public ObjectTag next() {
+                checkVersion();
+                if (cursor >= size) {
+                    throw new NoSuchElementException();
+                }
+                lastReturned = cursor++;
+                return get(lastReturned);
+            }
+
+            @Override
+            public boolean hasPrevious() {
+                return cursor != 0;
+            }
+
+            @Override
+            public ObjectTag previous() {
+                checkVersion();
+                if (cursor <= 0) {
+                    throw new NoSuchElementException();
+                }
+                lastReturned = --cursor;
+                return get(lastReturned);
+            }
+
+            @Override
+            public int nextIndex() {
+                return cursor;
+            }
+
+            @Override
+            public int previousIndex() {
+                return cursor - 1;
+            }
+
+            @Override
+            public void remove() {
+                if (lastReturned < 0) {
+                    throw new IllegalStateException();
+                }
+                checkVersion();
+                ObjectList.this.remove(lastReturned);
+                cursor = lastReturned;
+                lastReturned = -1;
+                expectedVersion = version;
+            }
+
+            @Override
+            public void set(ObjectTag element) {
+                if (lastReturned < 0) {
+                    throw new IllegalStateException();
+                }
+                checkVersion();
+                ObjectList.this.set(lastReturned, element);
+                expectedVersion = version;
+            }
+
+            @Override
+            public void add(ObjectTag element) {
+                checkVersion();
+                ObjectList.this.add(cursor++, element);
+                lastReturned = -1;
+                expectedVersion = version;
+            }
+        }
+
+        @Override
+        public Spliterator<ObjectTag> spliterator() {
+            resolveAll();
+            return Spliterators.spliterator(this, Spliterator.ORDERED);
+        }
+
+        @Override
+        public List<ObjectTag> subList(int fromIndex, int toIndex) {
+            if (fromIndex < 0 || toIndex > size || fromIndex > toIndex) {
+                throw new IndexOutOfBoundsException("From: " + fromIndex + ", To: " + toIndex + ", Size: " + size);
+            }
+            resolveAll();
+            return new SubList(fromIndex, toIndex);
+        }
+
+        private class SubList extends AbstractList<ObjectTag> {
+
+            final int offset;
+
+            int subSize;
+
+            int expectedVersion = version;
+
+            SubList(int fromIndex, int toIndex) {
+                offset = fromIndex;
+                subSize = toIndex - fromIndex;
+            }
+
+            void checkVersion() {
+                if (version != expectedVersion) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+
+            void checkIndex(int index, int limit) {
+                if (index < 0 || index >= limit) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + subSize);
+                }
+            }
+
+            @Override
+            public int size() {
+                checkVersion();
+                return subSize;
+            }
+
+            @Override
+            public ObjectTag get(int index) {
+                checkIndex(index, subSize);
+                checkVersion();
+                return ObjectList.this.get(offset + index);
+            }
+
+            @Override
+            public ObjectTag set(int index, ObjectTag element) {
+                checkIndex(index, subSize);
+                checkVersion();
+                ObjectTag result = ObjectList.this.set(offset + index, element);
+                expectedVersion = version;
+                return result;
+            }
+
+            @Override
+            public void add(int index, ObjectTag element) {
+                checkIndex(index, subSize + 1);
+                checkVersion();
+                ObjectList.this.add(offset + index, element);
+                expectedVersion = version;
+                subSize++;
+                modCount++;
+            }
+
+            @Override
+            public ObjectTag remove(int index) {
+                checkIndex(index, subSize);
+                checkVersion();
+                ObjectTag result = ObjectList.this.remove(offset + index);
+                expectedVersion = version;
+                subSize--;
+                modCount++;
+                return result;
+            }
+
+            @Override
+            protected void removeRange(int fromIndex, int toIndex) {
+                checkVersion();
+                ObjectList.this.removeRange(offset + fromIndex, offset + toIndex);
+                expectedVersion = version;
+                subSize -= toIndex - fromIndex;
+                modCount++;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+            if (!(o instanceof List)) {
+                return false;
+            }
+            resolveAll();
+            if (o instanceof ObjectList) {
+                ObjectList other = (ObjectList) o;
+                if (other.size != size) {
+                    return false;
+                }
+                other.resolveAll();
+                for (int i = 0; i < size; i++) {
+                    if (!Objects.equals(array.data[i], other.array.data[i])) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            Iterator<?> other = ((List<?>) o).iterator();
+            for (int i = 0; i < size; i++) {
+                if (!other.hasNext() || !Objects.equals(array.data[i], other.next())) {
+                    return false;
+                }
+            }
+            return !other.hasNext();
+        }
+
+        @Override
+        public int hashCode() {
+            resolveAll();
+            int hash = 1;
+            for (int i = 0; i < size; i++) {
+                ObjectTag value = array.data[i];
+                hash = 31 * hash + (value == null ? 0 : value.hashCode());
+            }
+            return hash;
+        }
+
+        // Newer Java versions add these to ArrayList with direct array access, so route them through the methods above.
+
+        public ObjectTag getFirst() {
+            if (isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            return get(0);
+        }
+
+        public ObjectTag getLast() {
+            if (isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            return get(size() - 1);
+        }
+
+        public ObjectTag removeFirst() {
+            if (isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            return remove(0);
+        }
+
+        public ObjectTag removeLast() {
+            if (isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            return remove(size() - 1);
+        }
+    }
+
     public final ArrayList<ObjectTag> objectForms;
 
+    /**
+     * Minimum list size for case-insensitive lookups to build and use a CaseInsensitiveIndex.
+     */
+    public static int caseInsensitiveIndexThreshold = 32;
+
+    /**
+     * A lookup table from lowercased entry text to positions in the list, built on first lookup and rebuilt after the list changes.
+     */
+    public static class CaseInsensitiveIndex {
+
+        public int version;
+
+        // First position of each lowercased ElementTag entry, with 'next' linking each position to the following one with the same text (or -1).
+        public HashMap<String, Integer> first;
+
+        public int[] next;
+
+        // Positions of other entries. Their text can change without the list changing, so these are always checked directly.
+        public int[] others;
+
+        public int otherCount;
+    }
+
+    private CaseInsensitiveIndex caseInsensitiveIndex;
+
+    /**
+     * Returns the case-insensitive index for this list, building it if needed, or null if the list is too small to be worth indexing.
+     */
+    public CaseInsensitiveIndex getCaseInsensitiveIndex() {
+        int size = objectForms.size();
+        if (size < caseInsensitiveIndexThreshold || !(objectForms instanceof ObjectList)) {
+            return null;
+        }
+        int version = ((ObjectList) objectForms).getVersion();
+        CaseInsensitiveIndex index = caseInsensitiveIndex;
+        if (index != null && index.version == version) {
+            return index;
+        }
+        index = new CaseInsensitiveIndex();
+        index.version = version;
+        index.first = new HashMap<>(size * 4 / 3 + 1);
+        index.next = new int[size];
+        int[] others = null;
+        int otherCount = 0;
+        for (int i = size - 1; i >= 0; i--) {
+            ObjectTag obj = objectForms.get(i);
+            String text = obj instanceof ElementTag ? ((ElementTag) obj).asString() : null;
+            if (text != null) {
+                Integer following = index.first.put(CoreUtilities.toLowerCase(text), i);
+                index.next[i] = following == null ? -1 : following;
+            }
+            else {
+                if (others == null) {
+                    others = new int[size];
+                }
+                others[otherCount++] = i;
+            }
+        }
+        // Collected backwards, so reverse to ascending order.
+        for (int i = 0; i < otherCount / 2; i++) {
+            int temp = others[i];
+            others[i] = others[otherCount - 1 - i];
+            others[otherCount - 1 - i] = temp;
+        }
+        index.others = others;
+        index.otherCount = otherCount;
+        caseInsensitiveIndex = index;
+        return index;
+    }
+
+    /**
+     * Returns the first position of an entry matching the given text case-insensitively, or -1 if there is none.
+     */
+    public int indexOfIgnoreCase(String val) {
+        CaseInsensitiveIndex index = getCaseInsensitiveIndex();
+        if (index == null) {
+            int size = size();
+            for (int i = 0; i < size; i++) {
+                if (CoreUtilities.equalsIgnoreCase(get(i), val)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        Integer first = index.first.get(CoreUtilities.toLowerCase(val));
+        int result = first == null ? -1 : first;
+        for (int i = 0; i < index.otherCount; i++) {
+            int pos = index.others[i];
+            if (result != -1 && pos > result) {
+                break;
+            }
+            if (CoreUtilities.equalsIgnoreCase(get(pos), val)) {
+                return pos;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns all positions of entries matching the given text case-insensitively, in ascending order.
+     */
+    public int[] findAllIgnoreCase(String val) {
+        int[] result = new int[4];
+        int count = 0;
+        CaseInsensitiveIndex index = getCaseInsensitiveIndex();
+        if (index == null) {
+            int size = size();
+            for (int i = 0; i < size; i++) {
+                if (CoreUtilities.equalsIgnoreCase(get(i), val)) {
+                    if (count == result.length) {
+                        result = Arrays.copyOf(result, count * 2);
+                    }
+                    result[count++] = i;
+                }
+            }
+            return Arrays.copyOf(result, count);
+        }
+        Integer first = index.first.get(CoreUtilities.toLowerCase(val));
+        for (int pos = first == null ? -1 : first; pos != -1; pos = index.next[pos]) {
+            if (count == result.length) {
+                result = Arrays.copyOf(result, count * 2);
+            }
+            result[count++] = pos;
+        }
+        int indexedCount = count;
+        for (int i = 0; i < index.otherCount; i++) {
+            int pos = index.others[i];
+            if (CoreUtilities.equalsIgnoreCase(get(pos), val)) {
+                if (count == result.length) {
+                    result = Arrays.copyOf(result, count * 2);
+                }
+                result[count++] = pos;
+            }
+        }
+        result = Arrays.copyOf(result, count);
+        if (indexedCount != 0 && indexedCount != count) {
+            Arrays.sort(result);
+        }
+        return result;
+    }
+
+    public int countIgnoreCase(String val) {
+        return findAllIgnoreCase(val).length;
+    }
+
     @Override
     public boolean add(String addMe) {
         return objectForms.add(new ElementTag(addMe));
@@ -239,6 +1167,14 @@ public class ListTag implements List<String>, ObjectTag {
             }
         }
         else if (obj instanceof String) {
+            if (getCaseInsensitiveIndex() != null) {
+                for (int pos : findAllIgnoreCase((String) obj)) {
+                    if (obj.equals(get(pos))) {
+                        return pos;
+                    }
+                }
+                return -1;
+            }
             for (int i = 0; i < size; i++) {
                 if (obj.equals(String.valueOf(getObject(i)))) {
                     return i;
@@ -392,12 +1328,37 @@ public class ListTag implements List<String>, ObjectTag {
         return result;
     }
 
+    @Override
+    public ListTag snapshot() {
+        if (!(objectForms instanceof ObjectList)) {
+            ListTag result = new ListTag(objectForms.size());
+            for (ObjectTag obj : objectForms) {
+                result.objectForms.add(obj == null ? null : obj.snapshot());
+            }
+            return result;
+        }
+        // Share the backing array, and only replace the entries that need their own snapshot (nested lists and maps), which makes the copy detach once.
+        ((ObjectList) objectForms).freezeForSnapshot();
+        ListTag result = new ListTag(objectForms);
+        ArrayList<ObjectTag> entries = result.objectForms;
+        for (int i = 0; i < entries.size(); i++) {
+            ObjectTag obj = entries.get(i);
+            if (obj != null) {
+                ObjectTag snapshot = obj.snapshot();
+                if (snapshot != obj) {
+                    entries.set(i, snapshot);
+                }
+            }
+        }
+        return result;
+    }
+
     /////////////
     //   Constructors
     //////////
 
     public ListTag(Collection<? extends ObjectTag> objectTagList) {
-        objectForms = new ArrayList<>(objectTagList);
+        objectForms = new ObjectList(objectTagList);
     }
 
     public ListTag(ObjectTag... objects) {
@@ -405,11 +1366,11 @@ public class ListTag implements List<String>, ObjectTag {
     }
 
     public ListTag(int capacity) {
-        objectForms = new ArrayList<>(capacity);
+        objectForms = new ObjectList(capacity);
     }
 
     public ListTag() {
-        objectForms = new ArrayList<>();
+        objectForms = new ObjectList();
     }
 
     public ListTag(String items) {
@@ -419,17 +1380,17 @@ public class ListTag implements List<String>, ObjectTag {
     public boolean wasLegacy = false;
 
     public ListTag(String items, TagContext context) {
-        objectForms = new ArrayList<>();
+        objectForms = new ObjectList();
         if (items != null && items.length() > 0) {
             if (!items.contains("|")) {
-                addObject(ObjectFetcher.pickObjectFor(items, context));
+                addObject(ObjectFetcher.pickObjectLazy(items, context));
             }
             else if (items.endsWith("|")) {
                 int pipe = items.indexOf('|');
                 int lastPipe = 0;
                 while (pipe != -1) {
                     String value = unescapeEntry(items.substring(lastPipe, pipe));
-                    ObjectTag object = ObjectFetcher.pickObjectFor(value, context);
+                    ObjectTag object = ObjectFetcher.pickObjectLazy(value, context);
                     addObject(object);
                     lastPipe = pipe + 1;
                     pipe = items.indexOf('|', lastPipe);
@@ -455,25 +1416,25 @@ public class ListTag implements List<String>, ObjectTag {
                     }
                     // Separate if an un-bracketed pipe is found
                     else if (brackets == 0 && chr == '|') {
-                        addObject(ObjectFetcher.pickObjectFor(items.substring(start, i), context));
+                        addObject(ObjectFetcher.pickObjectLazy(items.substring(start, i), context));
                         start = i + 1;
                     }
                 }
                 // If there is an item waiting, add it too
                 if (start < items.length()) {
-                    addObject(ObjectFetcher.pickObjectFor(items.substring(start), context));
+                    addObject(ObjectFetcher.pickObjectLazy(items.substring(start), context));
                 }
             }
         }
     }
 
     public ListTag(ListTag input) {
-        objectForms = new ArrayList<>(input.objectForms);
+        objectForms = new ObjectList(input.objectForms);
     }
 
     // A List<String> of items
     public ListTag(List<String> items) {
-        objectForms = new ArrayList<>(items.size());
+        objectForms = new ObjectList(items.size());
         for (String str : items) {
             objectForms.add(new ElementTag(str));
         }
@@ -481,7 +1442,7 @@ public class ListTag implements List<String>, ObjectTag {
 
     // A Set<Object> of items
     public ListTag(Set<?> items) {
-        objectForms = new ArrayList<>(items.size());
+        objectForms = new ObjectList(items.size());
         for (Object o : items) {
             if (o instanceof ObjectTag) {
                 objectForms.add((ObjectTag) o);
@@ -566,16 +1527,9 @@ public class ListTag implements List<String>, ObjectTag {
     public ListTag deduplicate() {
         ListTag list = new ListTag();
         int size = size();
+        HashSet<String> seen = new HashSet<>(size * 4 / 3 + 1);
         for (int i = 0; i < size; i++) {
-            String entry = get(i);
-            boolean duplicate = false;
-            for (int x = 0; x < i; x++) {
-                if (CoreUtilities.equalsIgnoreCase(get(x), entry)) {
-                    duplicate = true;
-                    break;
-                }
-            }
-            if (!duplicate) {
+            if (seen.add(CoreUtilities.toLowerCase(get(i)))) {
                 list.addObject(objectForms.get(i));
             }
         }
@@ -632,16 +1586,104 @@ public class ListTag implements List<String>, ObjectTag {
         return identifyList();
     }
 
+    // Cached result of 'identifyList', along with the list version it was built at,
+    // and the nested lists and maps it includes with the identity string each had at the time.
+    private String identityCache;
+
+    private int identityCacheVersion;
+
+    private ObjectTag[] identityCacheChildren;
+
+    private String[] identityCacheChildIdentities;
+
+    /**
+     * Returns the cached identity if neither this list nor any list or map nested in it has changed since it was built, or null otherwise.
+     * A cache is only built when every other entry is of a type in 'fixedIdentityTypes'.
+     */
+    public String getValidIdentityCache() {
+        String cache = identityCache;
+        if (cache == null || !(objectForms instanceof ObjectList) || ((ObjectList) objectForms).getVersion() != identityCacheVersion) {
+            return null;
+        }
+        ObjectTag[] children = identityCacheChildren;
+        if (children != null) {
+            for (int i = 0; i < children.length; i++) {
+                if (getValidIdentityCacheOf(children[i]) != identityCacheChildIdentities[i]) {
+                    return null;
+                }
+            }
+        }
+        return cache;
+    }
+
+    public static String getValidIdentityCacheOf(ObjectTag object) {
+        return object instanceof ListTag ? ((ListTag) object).getValidIdentityCache() : ((MapTag) object).getValidIdentityCache();
+    }
+
+    public static boolean isIdentityCachedType(ObjectTag object) {
+        return object != null && (object.getClass() == ListTag.class || object.getClass() == MapTag.class);
+    }
+
+    /**
+     * Object types whose saved text can never change once created, so that lists and maps holding them can cache their identity.
+     * Implementations may add their own immutable types. Types with live or mutable state (eg entities, items, locations) must not be added.
+     */
+    public static Set<Class<? extends ObjectTag>> fixedIdentityTypes = ConcurrentHashMap.newKeySet();
+
+    static {
+        fixedIdentityTypes.add(ElementTag.class);
+        fixedIdentityTypes.add(DurationTag.class);
+        fixedIdentityTypes.add(TimeTag.class);
+        fixedIdentityTypes.add(ScriptTag.class);
+        fixedIdentityTypes.add(QueueTag.class);
+        fixedIdentityTypes.add(ObjectFetcher.PendingObject.class);
+    }
+
+    public static boolean hasFixedIdentity(ObjectTag object) {
+        return object != null && fixedIdentityTypes.contains(object.getClass());
+    }
+
     public String identifyList() {
         if (isEmpty()) {
             return "li@";
         }
+        String cache = getValidIdentityCache();
+        if (cache != null) {
+            return cache;
+        }
+        int version = objectForms instanceof ObjectList ? ((ObjectList) objectForms).getVersion() : 0;
+        ArrayList<ObjectTag> children = null;
+        ArrayList<String> childIdentities = null;
+        boolean cacheable = true;
         StringBuilder output = new StringBuilder();
         output.append("li@");
         for (ObjectTag object : objectForms) {
-            output.append(escapeEntry(object.savable())).append('|');
+            String savable;
+            if (isIdentityCachedType(object)) {
+                savable = object.identify();
+                if (children == null) {
+                    children = new ArrayList<>();
+                    childIdentities = new ArrayList<>();
+                }
+                children.add(object);
+                childIdentities.add(savable);
+            }
+            else {
+                savable = object.savable();
+                cacheable = cacheable && hasFixedIdentity(object);
+            }
+            output.append(escapeEntry(savable)).append('|');
+        }
+        String result = output.toString();
+        if (!cacheable) {
+            identityCache = null;
+            return result;
         }
-        return output.toString();
+        identityCacheVersion = version;
+        identityCacheChildren = children == null ? null : children.toArray(new ObjectTag[0]);
+        identityCacheChildIdentities = childIdentities == null ? null : childIdentities.toArray(new String[0]);
+        identityCache = result;
+        return result;
     }
 
     @Override
@@ -926,6 +1968,17 @@ public class ListTag implements List<String>, ObjectTag {
             return map;
         });
 
+        // <--[tag]
+        // @attribute <ListTag.to_json>
+        // @returns ElementTag
+        // @description
+        // Returns a JSON array encoding of this list.
+        // Maps and lists within the list become JSON objects and arrays, and anything else becomes a JSON string.
+        // -->
+        registerTag("to_json", (attribute, object) -> {
+            return new ElementTag(JsonWriter.toJson(object));
+        });
+
         // <--[tag]
         // @attribute <ListTag.map_with[<value>|...]>
         // @returns MapTag
@@ -1180,17 +2233,17 @@ public class ListTag implements List<String>, ObjectTag {
                 return null;
             }
             ListTag exclusions = getListFor(attribute.getContextObject(1), attribute.context);
-            // Create a new ListTag that will contain the exclusions
-            ListTag copy = new ListTag(object);
-            // Iterate through
+            HashSet<String> excluded = new HashSet<>();
             for (String exclusion : exclusions) {
-                for (int i = 0; i < copy.size(); i++) {
-                    if (CoreUtilities.equalsIgnoreCase(copy.get(i), exclusion)) {
-                        copy.removeObject(i--);
-                    }
+                excluded.add(CoreUtilities.toLowerCase(exclusion));
+            }
+            // Create a new ListTag with everything but the exclusions
+            ListTag copy = new ListTag(object.size());
+            for (int i = 0; i < object.size(); i++) {
+                if (!excluded.contains(CoreUtilities.toLowerCase(object.get(i)))) {
+                    copy.addObject(object.getObject(i));
                 }
             }
-            // Return the modified list
             return copy;
         });
 
@@ -1262,8 +2315,11 @@ public class ListTag implements List<String>, ObjectTag {
             }
             ListTag secondList = getListFor(attribute.getContextObject(1), attribute.context);
             ListTag output = new ListTag();
+            HashSet<String> added = new HashSet<>();
             for (String val : object) {
-                if (secondList.containsCaseInsensitive(val) && !output.containsCaseInsensitive(val)) {
+                String low = CoreUtilities.toLowerCase(val);
+                if (!added.contains(low) && secondList.containsCaseInsensitive(val)) {
+                    added.add(low);
                     output.add(val);
                 }
             }
@@ -1472,10 +2528,8 @@ public class ListTag implements List<String>, ObjectTag {
                 return null;
             }
             ListTag positions = new ListTag();
-            for (int i = 0; i < object.size(); i++) {
-                if (object.get(i).equalsIgnoreCase(attribute.getContext(1))) {
-                    positions.add(String.valueOf(i + 1));
-                }
+            for (int pos : object.findAllIgnoreCase(attribute.getContext(1))) {
+                positions.addObject(new ElementTag(pos + 1));
             }
             return positions;
         });
@@ -1517,10 +2571,9 @@ public class ListTag implements List<String>, ObjectTag {
                 attribute.echoError("The tag ListTag.find[...] must have a value.");
                 return null;
             }
-            for (int i = 0; i < object.size(); i++) {
-                if (object.get(i).equalsIgnoreCase(attribute.getContext(1))) {
-                    return new ElementTag(i + 1);
-                }
+            int index = object.indexOfIgnoreCase(attribute.getContext(1));
+            if (index != -1) {
+                return new ElementTag(index + 1);
             }
             // TODO: This should be find_partial or something
             /*
@@ -1544,14 +2597,7 @@ public class ListTag implements List<String>, ObjectTag {
                 attribute.echoError("The tag ListTag.count[...] must have a value.");
                 return null;
             }
-            String element = attribute.getContext(1);
-            int count = 0;
-            for (int i = 0; i < object.size(); i++) {
-                if (CoreUtilities.equalsIgnoreCase(object.get(i), element)) {
-                    count++;
-                }
-            }
-            return new ElementTag(count);
+            return new ElementTag(object.countIgnoreCase(attribute.getContext(1)));
         });
 
         // <--[tag]
@@ -2302,17 +3348,12 @@ public class ListTag implements List<String>, ObjectTag {
             }
             ListTag list = getListFor(attribute.getContextObject(1), attribute.context);
             boolean state = false;
-
-            full_set:
-            for (String element : object) {
-                for (String sub_element : list) {
-                    if (CoreUtilities.equalsIgnoreCase(element, sub_element)) {
-                        state = true;
-                        break full_set;
-                    }
+            for (String sub_element : list) {
+                if (object.containsCaseInsensitive(sub_element)) {
+                    state = true;
+                    break;
                 }
             }
-
             return new ElementTag(state);
         });
 
@@ -2354,11 +3395,8 @@ public class ListTag implements List<String>, ObjectTag {
             int gotten = 0;
 
             for (String check : needed) {
-                for (String element : object) {
-                    if (CoreUtilities.equalsIgnoreCase(element, check)) {
-                        gotten++;
-                        break;
-                    }
+                if (object.containsCaseInsensitive(check)) {
+                    gotten++;
                 }
             }
 
@@ -2420,14 +3458,7 @@ public class ListTag implements List<String>, ObjectTag {
     }
 
     public boolean containsCaseInsensitive(String val) {
-        val = CoreUtilities.toLowerCase(val);
-        for (String str : this) {
-            if (CoreUtilities.toLowerCase(str).equals(val)) {
-            //if (CoreUtilities.equalsIgnoreCase(str, val)) {
-                return true;
-            }
-        }
-        return false;
+        return indexOfIgnoreCase(val) != -1;
     }
 
     public static ObjectTagProcessor<ListTag> tagProcessor = new ObjectTagProcessor<>();
@@ -8,10 +8,14 @@ import com.denizenscript.denizencore.tags.TagContext;
 import com.denizenscript.denizencore.tags.TagRunnable;
 import com.denizenscript.denizencore.utilities.*;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
+import com.denizenscript.denizencore.utilities.text.JsonWriter;
 import com.denizenscript.denizencore.utilities.text.StringHolder;
-import org.json.JSONObject;
 
+import java.io.Serializable;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 public class MapTag implements ObjectTag, Adjustable {
 
@@ -87,7 +91,7 @@ public class MapTag implements ObjectTag, Adjustable {
             }
             String key = string.substring(lastPipe, slash);
             String value = string.substring(slash + 1, pipe);
-            result.putObject(unescapeEntry(key), ObjectFetcher.pickObjectFor(unescapeEntry(value), context));
+            result.putObject(unescapeEntry(key), ObjectFetcher.pickObjectLazy(unescapeEntry(value), context));
             lastPipe = pipe + 1;
             pipe = string.indexOf('|', lastPipe);
         }
@@ -111,14 +115,835 @@ public class MapTag implements ObjectTag, Adjustable {
         return valueOf(string, CoreUtilities.noDebugContext) != null;
     }
 
-    public LinkedHashMap<StringHolder, ObjectTag> map;
+    /**
+     * Minimum number of entries for an ObjectMap to build a hash index, below which lookups just scan the entries.
+     */
+    public static int hashIndexThreshold = 8;
+
+    /**
+     * An insertion-ordered map that stores its entries in flat key and value arrays rather than one node object per entry.
+     * Small maps look keys up by scanning the arrays. Maps past MapTag.hashIndexThreshold also keep an open-addressed table of array positions.
+     * Removed entries leave a gap until the map compacts itself, so positions stay stable while iterating.
+     * Copying one ObjectMap into another shares the same arrays until either map changes, the same way ListTag.ObjectList does.
+     * It may also hold ObjectFetcher.PendingObject values from parsing, which are resolved when read.
+     * When serialized, the map is written as a plain LinkedHashMap copy (see 'writeReplace').
+     */
+    public static class ObjectMap extends AbstractMap<StringHolder, ObjectTag> implements Cloneable, Serializable {
+
+        private static final long serialVersionUID = -3412875962330817443L;
+
+        /**
+         * The entry arrays and hash index, which may be shared by several ObjectMaps.
+         */
+        public static final class Storage {
+
+            public StringHolder[] keys;
+
+            public ObjectTag[] values;
+
+            // Array position + 1 of each indexed key, or 0 for an empty slot. Covers every position below 'used' when not null.
+            public int[] index;
+
+            public int indexFill;
+
+            // How many positions any map has filled, so a map ending at exactly this position can append without affecting the others.
+            public int used;
+
+            // How many maps use this storage. Maps that are dropped without changing never release it, so this can only overestimate.
+            public int owners = 1;
+
+            // Set once a snapshot shares this storage, after which no map may append to it in place, as the snapshot may be read from another thread meanwhile.
+            public boolean frozen;
+
+            public Storage(int capacity) {
+                keys = capacity == 0 ? EMPTY_KEYS : new StringHolder[capacity];
+                values = capacity == 0 ? EMPTY_VALUES : new ObjectTag[capacity];
+            }
+        }
+
+        private static final StringHolder[] EMPTY_KEYS = new StringHolder[0];
+
+        private static final ObjectTag[] EMPTY_VALUES = new ObjectTag[0];
+
+        private transient Storage storage;
+
+        // Number of array positions in use, including gaps left by removed entries.
+        private transient int end = 0;
+
+        private transient int count = 0;
+
+        private transient int pendingCount = 0;
+
+        // Changes whenever an entry is added, removed or replaced in any way. Used to know when caches built from the map are out of date.
+        private transient int version = 0;
+
+        // Changes whenever entries are added or removed, for iterators to detect outside changes.
+        private transient int structureVersion = 0;
+
+        public int getVersion() {
+            return version;
+        }
+
+        public ObjectMap() {
+            storage = new Storage(0);
+        }
+
+        public ObjectMap(int capacity) {
+            storage = new Storage(capacity);
+        }
+
+        public ObjectMap(Map<StringHolder, ObjectTag> map) {
+            if (map instanceof ObjectMap) {
+                ObjectMap other = (ObjectMap) map;
+                storage = other.storage;
+                storage.owners++;
+                end = other.end;
+                count = other.count;
+                pendingCount = other.pendingCount;
+                return;
+            }
+            storage = new Storage(map.size());
+            for (Map.Entry<StringHolder, ObjectTag> entry : map.entrySet()) {
+                put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        /**
+         * Returns whether this map's storage is (or may be) used by another map too.
+         */
+        public boolean isShared() {
+            return storage.owners > 1;
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+
+        private int find(Object key) {
+            if (!(key instanceof StringHolder)) {
+                return -1;
+            }
+            StringHolder holder = (StringHolder) key;
+            int hash = holder.hashCode();
+            StringHolder[] keys = storage.keys;
+            int[] index = storage.index;
+            if (index == null) {
+                for (int i = 0; i < end; i++) {
+                    StringHolder other = keys[i];
+                    if (other != null && (other == holder || (other.hashCode() == hash && other.low.equals(holder.low)))) {
+                        return i;
+                    }
+                }
+                return -1;
+            }
+            int mask = index.length - 1;
+            for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+                int pos = index[slot] - 1;
+                if (pos == -1) {
+                    return -1;
+                }
+                if (pos < end) {
+                    StringHolder other = keys[pos];
+                    if (other != null && (other == holder || (other.hashCode() == hash && other.low.equals(holder.low)))) {
+                        return pos;
+                    }
+                }
+            }
+        }
+
+        private static void addToIndex(int[] index, StringHolder key, int pos) {
+            int mask = index.length - 1;
+            int slot = spread(key.hashCode()) & mask;
+            while (index[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            index[slot] = pos + 1;
+        }
+
+        private void rebuildIndex() {
+            Storage storage = this.storage;
+            if (storage.used <= hashIndexThreshold) {
+                storage.index = null;
+                storage.indexFill = 0;
+                return;
+            }
+            int length = 16;
+            while (length < storage.keys.length * 2) {
+                length <<= 1;
+            }
+            int[] index = new int[length];
+            int fill = 0;
+            for (int i = 0; i < storage.used; i++) {
+                StringHolder key = storage.keys[i];
+                if (key != null) {
+                    addToIndex(index, key, i);
+                    fill++;
+                }
+            }
+            storage.index = index;
+            storage.indexFill = fill;
+        }
+
+        private void detach(int capacity) {
+            Storage old = storage;
+            Storage copy = new Storage(capacity);
+            System.arraycopy(old.keys, 0, copy.keys, 0, end);
+            System.arraycopy(old.values, 0, copy.values, 0, end);
+            copy.used = end;
+            old.owners--;
+            storage = copy;
+            rebuildIndex();
+        }
+
+        private int newCapacity(int minCapacity) {
+            int capacity = storage.keys.length + (storage.keys.length >> 1);
+            return Math.max(capacity, Math.max(minCapacity, 2));
+        }
+
+        /**
+         * Makes sure this map has its own storage, for changes to existing positions.
+         */
+        private void prepareWrite() {
+            if (storage.owners > 1) {
+                detach(Math.max(end, 1));
+            }
+        }
+
+        /**
+         * Removes gaps left by removed entries. Only valid when the storage isn't shared.
+         */
+        private void compact() {
+            StringHolder[] keys = storage.keys;
+            ObjectTag[] values = storage.values;
+            int target = 0;
+            for (int i = 0; i < end; i++) {
+                if (keys[i] != null) {
+                    keys[target] = keys[i];
+                    values[target] = values[i];
+                    target++;
+                }
+            }
+            // Positions past this map's end may still hold entries from a map that used to share the storage.
+            int filled = Math.max(end, storage.used);
+            Arrays.fill(keys, target, filled, null);
+            Arrays.fill(values, target, filled, null);
+            end = target;
+            storage.used = end;
+            rebuildIndex();
+        }
+
+        private void append(StringHolder key, ObjectTag value) {
+            Storage storage = this.storage;
+            if (storage.owners > 1) {
+                if (storage.frozen || end != storage.used || end == storage.keys.length) {
+                    detach(newCapacity(end + 1));
+                }
+            }
+            else if (end == storage.keys.length) {
+                if (end - count > (end >> 2)) {
+                    compact();
+                }
+                if (end == storage.keys.length) {
+                    storage.keys = Arrays.copyOf(storage.keys, newCapacity(end + 1));
+                    storage.values = Arrays.copyOf(storage.values, storage.keys.length);
+                }
+            }
+            storage = this.storage;
+            int pos = end++;
+            storage.keys[pos] = key;
+            storage.values[pos] = value;
+            storage.used = end;
+            count++;
+            if (storage.index != null && (storage.indexFill + 1) * 2 <= storage.index.length) {
+                addToIndex(storage.index, key, pos);
+                storage.indexFill++;
+            }
+            else if (end > hashIndexThreshold) {
+                rebuildIndex();
+            }
+            if (value instanceof ObjectFetcher.PendingObject) {
+                pendingCount++;
+            }
+            version++;
+            structureVersion++;
+        }
+
+        private ObjectTag valueAt(int pos) {
+            ObjectTag value = storage.values[pos];
+            if (value instanceof ObjectFetcher.PendingObject) {
+                value = ((ObjectFetcher.PendingObject) value).resolve();
+                // Other maps sharing the storage would resolve to the same thing, so this is safe to write even when shared.
+                storage.values[pos] = value;
+                pendingCount--;
+            }
+            return value;
+        }
+
+        private ObjectTag setValueAt(int pos, ObjectTag value) {
+            prepareWrite();
+            ObjectTag previous = storage.values[pos];
+            if (previous instanceof ObjectFetcher.PendingObject) {
+                pendingCount--;
+                previous = ((ObjectFetcher.PendingObject) previous).resolve();
+            }
+            if (value instanceof ObjectFetcher.PendingObject) {
+                pendingCount++;
+            }
+            storage.values[pos] = value;
+            version++;
+            return previous;
+        }
+
+        private ObjectTag removeAt(int pos, boolean mayCompact) {
+            prepareWrite();
+            ObjectTag previous = storage.values[pos];
+            if (previous instanceof ObjectFetcher.PendingObject) {
+                pendingCount--;
+                previous = ((ObjectFetcher.PendingObject) previous).resolve();
+            }
+            storage.keys[pos] = null;
+            storage.values[pos] = null;
+            count--;
+            if (count == 0 && mayCompact) {
+                end = 0;
+                storage.used = 0;
+                storage.index = null;
+                storage.indexFill = 0;
+            }
+            else if (mayCompact && end - count > count && end - count > hashIndexThreshold) {
+                compact();
+            }
+            version++;
+            structureVersion++;
+            return previous;
+        }
+
+        /**
+         * Prepares this map's storage to be shared with a snapshot that another thread may read: resolves all pending values, and stops any map from writing to the storage in place.
+         */
+        public void freezeForSnapshot() {
+            resolveAll();
+            storage.frozen = true;
+        }
+
+        public void resolveAll() {
+            if (pendingCount <= 0) {
+                return;
+            }
+            for (int i = 0; i < end; i++) {
+                if (storage.keys[i] != null) {
+                    valueAt(i);
+                }
+            }
+            pendingCount = 0;
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return count == 0;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return find(key) != -1;
+        }
+
+        @Override
+        public boolean containsValue(Object value) {
+            for (int i = 0; i < end; i++) {
+                if (storage.keys[i] != null && Objects.equals(value, valueAt(i))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public ObjectTag get(Object key) {
+            int pos = find(key);
+            return pos == -1 ? null : valueAt(pos);
+        }
+
+        @Override
+        public ObjectTag getOrDefault(Object key, ObjectTag defaultValue) {
+            int pos = find(key);
+            return pos == -1 ? defaultValue : valueAt(pos);
+        }
+
+        @Override
+        public ObjectTag put(StringHolder key, ObjectTag value) {
+            Objects.requireNonNull(key);
+            int pos = find(key);
+            if (pos != -1) {
+                return setValueAt(pos, value);
+            }
+            append(key, value);
+            return null;
+        }
+
+        @Override
+        public void putAll(Map<? extends StringHolder, ? extends ObjectTag> m) {
+            for (Map.Entry<? extends StringHolder, ? extends ObjectTag> entry : m.entrySet()) {
+                put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        @Override
+        public ObjectTag remove(Object key) {
+            int pos = find(key);
+            return pos == -1 ? null : removeAt(pos, true);
+        }
+
+        @Override
+        public void clear() {
+            if (storage.owners > 1) {
+                storage.owners--;
+                storage = new Storage(0);
+            }
+            else {
+                Arrays.fill(storage.keys, 0, end, null);
+                Arrays.fill(storage.values, 0, end, null);
+                storage.used = 0;
+                storage.index = null;
+                storage.indexFill = 0;
+            }
+            end = 0;
+            count = 0;
+            pendingCount = 0;
+            version++;
+            structureVersion++;
+        }
+
+        @Override
+        public ObjectTag putIfAbsent(StringHolder key, ObjectTag value) {
+            int pos = find(key);
+            if (pos == -1) {
+                append(key, value);
+                return null;
+            }
+            ObjectTag current = valueAt(pos);
+            if (current == null) {
+                setValueAt(pos, value);
+            }
+            return current;
+        }
+
+        @Override
+        public boolean remove(Object key, Object value) {
+            int pos = find(key);
+            if (pos == -1 || !Objects.equals(valueAt(pos), value)) {
+                return false;
+            }
+            removeAt(pos, true);
+            return true;
+        }
+
+        @Override
+        public boolean replace(StringHolder key, ObjectTag oldValue, ObjectTag newValue) {
+            int pos = find(key);
+            if (pos == -1 || !Objects.equals(valueAt(pos), oldValue)) {
+                return false;
+            }
+            setValueAt(pos, newValue);
+            return true;
+        }
+
+        @Override
+        public ObjectTag replace(StringHolder key, ObjectTag value) {
+            int pos = find(key);
+            return pos == -1 ? null : setValueAt(pos, value);
+        }
+
+        @Override
+        public ObjectTag computeIfAbsent(StringHolder key, Function<? super StringHolder, ? extends ObjectTag> mappingFunction) {
+            Objects.requireNonNull(mappingFunction);
+            int pos = find(key);
+            ObjectTag current = pos == -1 ? null : valueAt(pos);
+            if (current != null) {
+                return current;
+            }
+            ObjectTag value = mappingFunction.apply(key);
+            if (value != null) {
+                put(key, value);
+            }
+            return value;
+        }
+
+        @Override
+        public ObjectTag computeIfPresent(StringHolder key, BiFunction<? super StringHolder, ? super ObjectTag, ? extends ObjectTag> remappingFunction) {
+            Objects.requireNonNull(remappingFunction);
+            int pos = find(key);
+            ObjectTag current = pos == -1 ? null : valueAt(pos);
+            if (current == null) {
+                return null;
+            }
+            ObjectTag value = remappingFunction.apply(key, current);
+            if (value == null) {
+                remove(key);
+            }
+            else {
+                put(key, value);
+            }
+            return value;
+        }
+
+        @Override
+        public ObjectTag compute(StringHolder key, BiFunction<? super StringHolder, ? super ObjectTag, ? extends ObjectTag> remappingFunction) {
+            Objects.requireNonNull(remappingFunction);
+            int pos = find(key);
+            ObjectTag current = pos == -1 ? null : valueAt(pos);
+            ObjectTag value = remappingFunction.apply(key, current);
+            if (value == null) {
+                if (pos != -1) {
+                    remove(key);
+                }
+            }
+            else {
+                put(key, value);
+            }
+            return value;
+        }
+
+        @Override
+        public ObjectTag merge(StringHolder key, ObjectTag value, BiFunction<? super ObjectTag, ? super ObjectTag, ? extends ObjectTag> remappingFunction) {
+            Objects.requireNonNull(remappingFunction);
+            Objects.requireNonNull(value);
+            int pos = find(key);
+            ObjectTag current = pos == -1 ? null : valueAt(pos);
+            ObjectTag result = current == null ? value : remappingFunction.apply(current, value);
+            if (result == null) {
+                remove(key);
+            }
+            else {
+                put(key, result);
+            }
+            return result;
+        }
+
+        @Override
+        public void forEach(BiConsumer<? super StringHolder, ? super ObjectTag> action) {
+            Objects.requireNonNull(action);
+            int expectedVersion = structureVersion;
+            for (int i = 0; i < end; i++) {
+                StringHolder key = storage.keys[i];
+                if (key != null) {
+                    action.accept(key, valueAt(i));
+                }
+                if (structureVersion != expectedVersion) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        }
+
+        @Override
+        public void replaceAll(BiFunction<? super StringHolder, ? super ObjectTag, ? extends ObjectTag> function) {
+            Objects.requireNonNull(function);
+            int expectedVersion = structureVersion;
+            for (int i = 0; i < end; i++) {
+                StringHolder key = storage.keys[i];
+                if (key != null) {
+                    setValueAt(i, function.apply(key, valueAt(i)));
+                }
+                if (structureVersion != expectedVersion) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        }
+
+        private abstract class PositionIterator<T> implements Iterator<T> {
+
+            int next = -1;
+
+            int lastReturned = -1;
+
+            int expectedVersion = structureVersion;
+
+            PositionIterator() {
+                advance();
+            }
+
+            void advance() {
+                next++;
+                while (next < end && storage.keys[next] == null) {
+                    next++;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < end;
+            }
+
+            int nextPosition() {
+                if (structureVersion != expectedVersion) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next >= end) {
+                    throw new NoSuchElementException();
+                }
+                lastReturned = next;
+                advance();
+                return lastReturned;
+            }
+
+            @Override
+            public void remove() {
+                if (lastReturned == -1) {
+                    throw new IllegalStateException();
+                }
+                if (structureVersion != expectedVersion) {
+                    throw new ConcurrentModificationException();
+                }
+                removeAt(lastReturned, false);
+                lastReturned = -1;
+                expectedVersion = structureVersion;
+            }
+        }
+
+        private final class Entry implements Map.Entry<StringHolder, ObjectTag> {
+
+            final StringHolder key;
+
+            final int pos;
+
+            Entry(int pos) {
+                this.key = storage.keys[pos];
+                this.pos = pos;
+            }
+
+            @Override
+            public StringHolder getKey() {
+                return key;
+            }
+
+            @Override
+            public ObjectTag getValue() {
+                return storage.keys[pos] == key ? valueAt(pos) : get(key);
+            }
+
+            @Override
+            public ObjectTag setValue(ObjectTag value) {
+                if (storage.keys[pos] != key) {
+                    throw new IllegalStateException("Entry is no longer in the map.");
+                }
+                return setValueAt(pos, value);
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                if (!(o instanceof Map.Entry)) {
+                    return false;
+                }
+                Map.Entry<?, ?> other = (Map.Entry<?, ?>) o;
+                return key.equals(other.getKey()) && Objects.equals(getValue(), other.getValue());
+            }
+
+            @Override
+            public int hashCode() {
+                return key.hashCode() ^ Objects.hashCode(getValue());
+            }
+
+            @Override
+            public String toString() {
+                return key + "=" + getValue();
+            }
+        }
+
+        @Override
+        public Set<StringHolder> keySet() {
+            return new AbstractSet<StringHolder>() {
+                @Override
+                public Iterator<StringHolder> iterator() {
+                    return new PositionIterator<StringHolder>() {
+                        @Override
+                        public StringHolder next() {
+                            return storage.keys[nextPosition()];
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return count;
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return containsKey(o);
+                }
+
+                @Override
+                public boolean remove(Object o) {
+                    int pos = find(o);
+                    if (pos == -1) {
+                        return false;
+                    }
+                    removeAt(pos, true);
+                    return true;
+                }
+
+                @Override
+                public void clear() {
+                    ObjectMap.this.clear();
+                }
+            };
+        }
+
+        @Override
+        public Collection<ObjectTag> values() {
+            return new AbstractCollection<ObjectTag>() {
+                @Override
+                public Iterator<ObjectTag> iterator() {
+                    return new PositionIterator<ObjectTag>() {
+                        @Override
+                        public ObjectTag next() {
+                            return valueAt(nextPosition());
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return count;
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return containsValue(o);
+                }
+
+                @Override
+                public void clear() {
+                    ObjectMap.this.clear();
+                }
+            };
+        }
+
+        @Override
+        public Set<Map.Entry<StringHolder, ObjectTag>> entrySet() {
+            return new AbstractSet<Map.Entry<StringHolder, ObjectTag>>() {
+                @Override
+                public Iterator<Map.Entry<StringHolder, ObjectTag>> iterator() {
+                    return new PositionIterator<Map.Entry<StringHolder, ObjectTag>>() {
+                        @Override
+                        public Map.Entry<StringHolder, ObjectTag> next() {
+                            return new Entry(nextPosition());
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return count;
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    if (!(o instanceof Map.Entry)) {
+                        return false;
+                    }
+                    Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+                    int pos = find(entry.getKey());
+                    return pos != -1 && Objects.equals(valueAt(pos), entry.getValue());
+                }
+
+                @Override
+                public boolean remove(Object o) {
+                    if (!(o instanceof Map.Entry)) {
+                        return false;
+                    }
+                    Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+                    return ObjectMap.this.remove(entry.getKey(), entry.getValue());
+                }
+
+                @Override
+                public void clear() {
+                    ObjectMap.this.clear();
+                }
+            };
+        }
+
+        @Override
+        public Object clone() {
+            return new ObjectMap(this);
+        }
+
+        // The entry arrays can be shared with other maps and hold gaps, so write a plain copy of the entries instead.
+        private Object writeReplace() {
+            return new LinkedHashMap<>(this);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == this) {
+                return true;
+            }
+            if (!(o instanceof Map)) {
+                return false;
+            }
+            Map<?, ?> other = (Map<?, ?>) o;
+            if (other.size() != count) {
+                return false;
+            }
+            for (int i = 0; i < end; i++) {
+                StringHolder key = storage.keys[i];
+                if (key == null) {
+                    continue;
+                }
+                ObjectTag value = valueAt(i);
+                if (value == null ? !(other.get(key) == null && other.containsKey(key)) : !value.equals(other.get(key))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 0;
+            for (int i = 0; i < end; i++) {
+                StringHolder key = storage.keys[i];
+                if (key != null) {
+                    hash += key.hashCode() ^ Objects.hashCode(valueAt(i));
+                }
+            }
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("{");
+            for (int i = 0; i < end; i++) {
+                StringHolder key = storage.keys[i];
+                if (key != null) {
+                    if (builder.length() > 1) {
+                        builder.append(", ");
+                    }
+                    builder.append(key).append('=').append(valueAt(i));
+                }
+            }
+            return builder.append('}').toString();
+        }
+    }
+
+    /**
+     * The entries of this map. This is an ObjectMap unless replaced with another map, in which case 'identify' can't cache its result.
+     * Migration note: this field was a LinkedHashMap before ObjectMap existed. Code that only uses it as a Map needs no change beyond recompiling,
+     * but code that declares it as LinkedHashMap (or calls LinkedHashMap-only methods) must use Map instead.
+     */
+    public Map<StringHolder, ObjectTag> map;
 
     public MapTag() {
-        this.map = new LinkedHashMap<>();
+        this.map = new ObjectMap();
     }
 
     public MapTag(Map<StringHolder, ObjectTag> map) {
-        this.map = new LinkedHashMap<>(map);
+        this.map = new ObjectMap(map);
     }
 
     @Override
@@ -130,6 +955,40 @@ public class MapTag implements ObjectTag, Adjustable {
         return newMap;
     }
 
+    @Override
+    public MapTag snapshot() {
+        if (!(map instanceof ObjectMap)) {
+            MapTag newMap = new MapTag();
+            for (Map.Entry<StringHolder, ObjectTag> entry : map.entrySet()) {
+                newMap.map.put(entry.getKey(), entry.getValue().snapshot());
+            }
+            return newMap;
+        }
+        // Share the storage, and only replace the values that need their own snapshot (nested lists and maps), which makes the copy detach once.
+        ((ObjectMap) map).freezeForSnapshot();
+        MapTag newMap = new MapTag(map);
+        ArrayList<StringHolder> changedKeys = null;
+        ArrayList<ObjectTag> changedValues = null;
+        for (Map.Entry<StringHolder, ObjectTag> entry : newMap.map.entrySet()) {
+            ObjectTag value = entry.getValue();
+            ObjectTag snapshot = value.snapshot();
+            if (snapshot != value) {
+                if (changedKeys == null) {
+                    changedKeys = new ArrayList<>();
+                    changedValues = new ArrayList<>();
+                }
+                changedKeys.add(entry.getKey());
+                changedValues.add(snapshot);
+            }
+        }
+        if (changedKeys != null) {
+            for (int i = 0; i < changedKeys.size(); i++) {
+                newMap.map.put(changedKeys.get(i), changedValues.get(i));
+            }
+        }
+        return newMap;
+    }
+
     String prefix = "Map";
 
     @Override
@@ -168,12 +1027,82 @@ public class MapTag implements ObjectTag, Adjustable {
 
     @Override
     public String identify() {
+        String cache = getValidIdentityCache();
+        if (cache != null) {
+            return cache;
+        }
+        Map<StringHolder, ObjectTag> map = this.map;
+        ArrayList<ObjectTag> children = null;
+        ArrayList<String> childIdentities = null;
+        boolean cacheable = map instanceof ObjectMap;
         StringBuilder output = new StringBuilder();
         output.append("map@");
         for (Map.Entry<StringHolder, ObjectTag> entry : map.entrySet()) {
-            output.append(escapeEntry(entry.getKey().str)).append("/").append(escapeEntry(entry.getValue().savable())).append("|");
+            ObjectTag value = entry.getValue();
+            String savable;
+            if (ListTag.isIdentityCachedType(value)) {
+                savable = value.identify();
+                if (children == null) {
+                    children = new ArrayList<>();
+                    childIdentities = new ArrayList<>();
+                }
+                children.add(value);
+                childIdentities.add(savable);
+            }
+            else {
+                savable = value.savable();
+                cacheable = cacheable && ListTag.hasFixedIdentity(value);
+            }
+            output.append(escapeEntry(entry.getKey().str)).append("/").append(escapeEntry(savable)).append("|");
+        }
+        String result = output.toString();
+        if (cacheable) {
+            identityCacheMap = (ObjectMap) map;
+            identityCacheVersion = ((ObjectMap) map).getVersion();
+            identityCacheSize = map.size();
+            identityCacheChildren = children == null ? null : children.toArray(new ObjectTag[0]);
+            identityCacheChildIdentities = childIdentities == null ? null : childIdentities.toArray(new String[0]);
+            identityCache = result;
+        }
+        else {
+            identityCache = null;
+        }
+        return result;
+    }
+
+    // Cached result of 'identify', along with the map object, version and size it was built at,
+    // and the nested lists and maps it includes with the identity string each had at the time.
+    private String identityCache;
+
+    private ObjectMap identityCacheMap;
+
+    private int identityCacheVersion;
+
+    private int identityCacheSize;
+
+    private ObjectTag[] identityCacheChildren;
+
+    private String[] identityCacheChildIdentities;
+
+    /**
+     * Returns the cached identity if neither this map nor any list or map nested in it has changed since it was built, or null otherwise.
+     * A cache is only built when every other value is of a type in ListTag.fixedIdentityTypes.
+     * Note that values replaced through Map.Entry.setValue are not tracked, so use 'put' to replace values.
+     */
+    public String getValidIdentityCache() {
+        String cache = identityCache;
+        if (cache == null || map != identityCacheMap || identityCacheMap.getVersion() != identityCacheVersion || map.size() != identityCacheSize) {
+            return null;
+        }
+        ObjectTag[] children = identityCacheChildren;
+        if (children != null) {
+            for (int i = 0; i < children.length; i++) {
+                if (ListTag.getValidIdentityCacheOf(children[i]) != identityCacheChildIdentities[i]) {
+                    return null;
+                }
+            }
         }
-        return output.toString();
+        return cache;
     }
 
     @Override
@@ -232,7 +1161,7 @@ public class MapTag implements ObjectTag, Adjustable {
             map.remove(new StringHolder(key));
         }
         else {
-            map.put(new StringHolder(key), value);
+            map.put(StringHolder.intern(key), value);
         }
     }
 
@@ -700,9 +1629,10 @@ public class MapTag implements ObjectTag, Adjustable {
         // @returns ElementTag
         // @description
         // Returns a JSON encoding of this map.
+        // Maps and lists within the map become JSON objects and arrays, and anything else becomes a JSON string.
         // -->
         registerTag("to_json", (attribute, object) -> {
-            return new ElementTag(new JSONObject((Map) CoreUtilities.objectTagToJavaForm(object.duplicate(), false)).toString());
+            return new ElementTag(JsonWriter.toJson(object));
         });
 
         // <--[tag]
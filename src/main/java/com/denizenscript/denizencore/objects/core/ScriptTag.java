@@ -1,5 +1,6 @@
 package com.denizenscript.denizencore.objects.core;
 
+import com.denizenscript.denizencore.events.ScriptEvent;
 import com.denizenscript.denizencore.flags.AbstractFlagTracker;
 import com.denizenscript.denizencore.flags.FlaggableObject;
 import com.denizenscript.denizencore.flags.RedirectionFlagTracker;
@@ -12,8 +13,8 @@ import com.denizenscript.denizencore.utilities.CoreUtilities;
 import com.denizenscript.denizencore.utilities.Deprecations;
 import com.denizenscript.denizencore.utilities.YamlConfiguration;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
+import com.denizenscript.denizencore.utilities.text.JsonWriter;
 import com.denizenscript.denizencore.DenizenCore;
-import org.json.JSONObject;
 
 import java.util.List;
 
@@ -436,9 +437,7 @@ public class ScriptTag implements ObjectTag, Adjustable, FlaggableObject {
         // Best used with 'data' type scripts.
         // -->
         registerTag("to_json", (attribute, object) -> {
-            JSONObject jsobj = new JSONObject(YamlConfiguration.reverse(object.container.getContents().getMap(), true));
-            jsobj.remove("type");
-            return new ElementTag(jsobj.toString());
+            return new ElementTag(JsonWriter.yamlToJson(object.container.getContents().contents, true, "type"));
         });
 
         // <--[tag]
@@ -471,10 +470,46 @@ public class ScriptTag implements ObjectTag, Adjustable, FlaggableObject {
             }
             return queues;
         }, "list_queues");
+
+        // <--[tag]
+        // @attribute <ScriptTag.event_stats>
+        // @returns MapTag
+        // @description
+        // Returns performance statistics for each script event path in this script (only applicable to world scripts).
+        // The map keys are the event lines (like "on player breaks block"), and each value is a map with keys:
+        // "checks" (how many times the path was checked against a firing event), "matches" (how many of those matched),
+        // "runs" (how many times the path ran), "total_time", "max_time", and approximate run time percentiles "p50_time", "p95_time", and "p99_time".
+        // Stats persist across reloads for event lines whose script is unchanged, and start over for lines that are new or were edited.
+        // They can be reset with <@link mechanism ScriptTag.reset_event_stats>.
+        // -->
+        registerTag("event_stats", (attribute, object) -> {
+            return getEventStats(object.getContainer());
+        });
     }
 
     public static ObjectTagProcessor<ScriptTag> tagProcessor = new ObjectTagProcessor<>();
 
+    public static MapTag getEventStats(ScriptContainer container) {
+        MapTag result = new MapTag();
+        for (ScriptEvent.ScriptPath path : ScriptEvent.getAllPaths()) {
+            if (path.container != container) {
+                continue;
+            }
+            ScriptEvent.PathStatData stats = path.stats;
+            MapTag pathStats = new MapTag();
+            pathStats.putObject("checks", new ElementTag(stats.checks));
+            pathStats.putObject("matches", new ElementTag(stats.matches));
+            pathStats.putObject("runs", new ElementTag(stats.runs));
+            pathStats.putObject("total_time", new DurationTag(stats.totalNanos / 1000000000.0));
+            pathStats.putObject("max_time", new DurationTag(stats.maxNanos / 1000000000.0));
+            pathStats.putObject("p50_time", new DurationTag(stats.percentileNanos(0.5) / 1000000000.0));
+            pathStats.putObject("p95_time", new DurationTag(stats.percentileNanos(0.95) / 1000000000.0));
+            pathStats.putObject("p99_time", new DurationTag(stats.percentileNanos(0.99) / 1000000000.0));
+            result.putObject((path.fireAfter ? "after " : "on ") + path.event, pathStats);
+        }
+        return result;
+    }
+
     public static void registerTag(String name, TagRunnable.ObjectInterface<ScriptTag> runnable, String... variants) {
         tagProcessor.registerTag(name, runnable, variants);
     }
@@ -494,6 +529,19 @@ public class ScriptTag implements ObjectTag, Adjustable, FlaggableObject {
 
         // TODO: enable/disable
 
+        // <--[mechanism]
+        // @object ScriptTag
+        // @name reset_event_stats
+        // @input None
+        // @description
+        // Resets the statistics of all script event paths in this script.
+        // @tags
+        // <ScriptTag.event_stats>
+        // -->
+        if (mechanism.matches("reset_event_stats")) {
+            ScriptEvent.resetPathStats(getContainer());
+        }
+
         if (!mechanism.fulfilled()) {
             mechanism.reportInvalid();
         }
@@ -10,11 +10,12 @@ import com.denizenscript.denizencore.DenizenCore;
 import com.denizenscript.denizencore.events.OldEventManager;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ScriptRegistry {
 
-    public static Map<String, ScriptContainer> scriptContainers = new HashMap<>();
-    public static Map<String, Class<? extends ScriptContainer>> scriptContainerTypes = new HashMap<>();
+    public static Map<String, ScriptContainer> scriptContainers = new ConcurrentHashMap<>();
+    public static Map<String, Class<? extends ScriptContainer>> scriptContainerTypes = new ConcurrentHashMap<>();
 
     public static void _registerType(String typeName, Class<? extends ScriptContainer> scriptContainerClass) {
         scriptContainerTypes.put(typeName.toUpperCase(), scriptContainerClass);
@@ -92,6 +93,7 @@ public class ScriptRegistry {
         scriptContainers.clear();
         OldEventManager.world_scripts.clear();
         OldEventManager.events.clear();
+        OldEventManager.eventIndex.clear();
         DenizenCore.getImplementation().refreshScriptContainers();
         if (yamlScripts == null) {
             return;
@@ -12,8 +12,34 @@ import com.denizenscript.denizencore.tags.TagManager;
 
 public class CommandExecutor {
 
+    private static final ThreadLocal<ScriptQueue> threadQueue = new ThreadLocal<>();
+
+    /**
+     * The queue that most recently started executing a command, on any thread.
+     * Deprecated: this is shared between all threads, so use getCurrentQueue() instead. Kept up to date for plugins built against older versions.
+     */
+    @Deprecated
     public static ScriptQueue currentQueue;
 
+    /**
+     * Returns the queue that is currently executing a command on the calling thread, if any.
+     */
+    public static ScriptQueue getCurrentQueue() {
+        return threadQueue.get();
+    }
+
+    /**
+     * Sets the queue returned by getCurrentQueue() for the calling thread only, eg to carry it over to a worker thread that acts on the queue's behalf.
+     */
+    public static void setCurrentQueue(ScriptQueue queue) {
+        threadQueue.set(queue);
+    }
+
+    private static void setExecutingQueue(ScriptQueue queue) {
+        threadQueue.set(queue);
+        currentQueue = queue;
+    }
+
     public static void debugSingleExecution(ScriptEntry scriptEntry) {
         StringBuilder output = new StringBuilder();
         output.append("<G>(line ").append(scriptEntry.internal.lineNumber).append(")<W> ");
@@ -60,8 +86,9 @@ public class CommandExecutor {
         }
         TagManager.recentTagError = false;
         AbstractCommand command = scriptEntry.internal.actualCommand;
-        currentQueue = scriptEntry.getResidingQueue();
-        if (currentQueue.procedural && !command.isProcedural) {
+        ScriptQueue queue = scriptEntry.getResidingQueue();
+        setExecutingQueue(queue);
+        if (queue.procedural && !command.isProcedural) {
             Debug.echoError("Command " + command.name + " is not accepted within a procedure. Procedures may not produce a change in the world, they may only process logic.");
             return false;
         }
@@ -88,7 +115,7 @@ public class CommandExecutor {
             if (saveName != null) {
                 scriptEntry.getResidingQueue().holdScriptEntry(saveName, scriptEntry);
             }
-            currentQueue = null;
+            setExecutingQueue(null);
             return true;
         }
         catch (InvalidArgumentsException e) {
@@ -101,7 +128,7 @@ public class CommandExecutor {
             Debug.log("(Attempted: " + scriptEntry.toString() + ")");
             Debug.echoDebug(scriptEntry, Debug.DebugElement.Footer);
             scriptEntry.setFinished(true);
-            currentQueue = null;
+            setExecutingQueue(null);
             return false;
         }
         catch (Exception e) {
@@ -110,7 +137,7 @@ public class CommandExecutor {
             Debug.log("(Attempted: " + scriptEntry.toString() + ")");
             Debug.echoDebug(scriptEntry, Debug.DebugElement.Footer);
             scriptEntry.setFinished(true);
-            currentQueue = null;
+            setExecutingQueue(null);
             return false;
         }
     }
@@ -44,10 +44,92 @@ public class ScriptEngine {
         }
     }
 
+    /**
+     * The maximum time, in milliseconds, that timed queues may spend executing commands within a single tick.
+     * Each timed queue gets a share of the budget proportional to its time slice weight, and yields to resume next tick when that share is used up.
+     * A queue will always execute at least one command per revolution, so no queue can be starved entirely.
+     * Set to 0 (the default) to disable the budget.
+     */
+    public static long tickBudgetMillis = 0;
+
+    public static class TickBudgetStats {
+        public long ticks = 0;
+        public long ticksOverBudget = 0;
+        public long totalOverrunNanos = 0;
+        public long maxOverrunNanos = 0;
+        public long queueYields = 0;
+        public long lastTickNanos = 0;
+    }
+
+    public TickBudgetStats budgetStats = new TickBudgetStats();
+
+    private long tickNanosUsed = 0;
+
+    private long tickWeight = 0;
+
+    private long lastTickWeight = 1;
+
+    /**
+     * Called by the core at the start of every tick, before any schedulables run.
+     */
+    public void startTick() {
+        tickNanosUsed = 0;
+        lastTickWeight = Math.max(1, tickWeight);
+        tickWeight = 0;
+    }
+
+    /**
+     * Called by the core at the end of every tick, to record budget overrun metrics.
+     */
+    public void endTick() {
+        if (tickBudgetMillis <= 0) {
+            return;
+        }
+        budgetStats.ticks++;
+        budgetStats.lastTickNanos = tickNanosUsed;
+        long overrun = tickNanosUsed - tickBudgetMillis * 1000000;
+        if (overrun > 0) {
+            budgetStats.ticksOverBudget++;
+            budgetStats.totalOverrunNanos += overrun;
+            budgetStats.maxOverrunNanos = Math.max(budgetStats.maxOverrunNanos, overrun);
+        }
+    }
+
+    public String getBudgetStats() {
+        if (tickBudgetMillis <= 0) {
+            return "Tick budget disabled.";
+        }
+        return "Tick budget of " + tickBudgetMillis + "ms: " + budgetStats.ticksOverBudget + " of " + budgetStats.ticks + " ticks over budget"
+                + ", total overrun " + (budgetStats.totalOverrunNanos / 1000000f) + "ms, max overrun " + (budgetStats.maxOverrunNanos / 1000000f) + "ms"
+                + ", " + budgetStats.queueYields + " queue yields, last tick used " + (budgetStats.lastTickNanos / 1000000f) + "ms.";
+    }
+
     public void revolve(ScriptQueue scriptQueue) {
+        if (tickBudgetMillis <= 0 || !(scriptQueue instanceof TimedQueue)) {
+            revolve(scriptQueue, 0);
+            return;
+        }
+        long weight = Math.max(1, ((TimedQueue) scriptQueue).timeSliceWeight);
+        tickWeight += weight;
+        long budget = tickBudgetMillis * 1000000;
+        long slice = Math.min(budget * weight / lastTickWeight, budget - tickNanosUsed);
+        long start = System.nanoTime();
+        try {
+            revolve(scriptQueue, Math.max(1, slice));
+        }
+        finally {
+            tickNanosUsed += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * Revolves the queue, yielding after the given time slice (in nanoseconds) has passed, or never if the slice is 0.
+     */
+    public void revolve(ScriptQueue scriptQueue, long sliceNanos) {
         if (shouldHold(scriptQueue)) {
             return;
         }
+        long start = sliceNanos > 0 ? System.nanoTime() : 0;
         ScriptEntry scriptEntry = scriptQueue.getNext();
         while (scriptEntry != null) {
             scriptEntry.setSendingQueue(scriptQueue);
@@ -59,6 +141,10 @@ public class ScriptEngine {
                 if (delayedQueue.isDelayed() || delayedQueue.isPaused()) {
                     break;
                 }
+                if (sliceNanos > 0 && System.nanoTime() - start >= sliceNanos) {
+                    budgetStats.queueYields++;
+                    break;
+                }
                 if (delayedQueue.isInstantSpeed() || scriptEntry.isInstant()) {
                     if (shouldHold(scriptQueue)) {
                         return;
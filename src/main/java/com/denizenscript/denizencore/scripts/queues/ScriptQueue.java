@@ -35,26 +35,42 @@ public abstract class ScriptQueue implements Debuggable, DefinitionProvider {
         return "Total number of queues created: "
                 + total_queues
                 + ", currently active queues: "
-                + allQueues.size() + ",\n" + stats.toString();
+                + getQueueCount() + ",\n" + DenizenCore.getScriptEngine().getBudgetStats() + "\n"
+                + "'After' event paths ran: " + ScriptEvent.deferredStats.ran + ", ticks over limit: " + ScriptEvent.deferredStats.ticksOverflowed
+                + ", largest backlog: " + ScriptEvent.deferredStats.maxBacklog + ",\n" + stats.toString();
     }
 
     public static ScriptQueue getExistingQueue(String id) {
-        if (!queueExists(id)) {
-            return null;
-        }
-        else {
+        synchronized (allQueues) {
             return allQueues.get(id);
         }
     }
 
-    protected static LinkedHashMap<String, ScriptQueue> allQueues = new LinkedHashMap<>();
+    /**
+     * All currently running queues, by ID.
+     * Only modified on the main thread, but may be read from any thread, so all access must synchronize on the map.
+     */
+    protected static final LinkedHashMap<String, ScriptQueue> allQueues = new LinkedHashMap<>();
 
+    /**
+     * Returns a snapshot of all currently running queues, in order of creation.
+     */
     public static Collection<ScriptQueue> getQueues() {
-        return allQueues.values();
+        synchronized (allQueues) {
+            return new ArrayList<>(allQueues.values());
+        }
+    }
+
+    public static int getQueueCount() {
+        synchronized (allQueues) {
+            return allQueues.size();
+        }
     }
 
     public static boolean queueExists(String id) {
-        return allQueues.containsKey(id);
+        synchronized (allQueues) {
+            return allQueues.containsKey(id);
+        }
     }
 
     /////////////////////
@@ -299,7 +315,9 @@ public abstract class ScriptQueue implements Debuggable, DefinitionProvider {
         if (script_entries.isEmpty()) {
             return;
         }
-        allQueues.put(id, this);
+        synchronized (allQueues) {
+            allQueues.put(id, this);
+        }
         is_started = true;
         long delay = delay_time - DenizenCore.serverTimeMillis;
         boolean is_delayed = delay > 0;
@@ -372,7 +390,9 @@ public abstract class ScriptQueue implements Debuggable, DefinitionProvider {
             return;
         }
         is_stopping = true;
-        allQueues.remove(id);
+        synchronized (allQueues) {
+            allQueues.remove(id);
+        }
         if (queueNeedsToDebug()) {
             queueDebug("Completing queue '<QUEUE>' in " + ((System.nanoTime() - startTime) / 1000000) + "ms.");
         }
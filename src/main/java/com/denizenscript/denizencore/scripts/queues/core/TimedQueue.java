@@ -41,6 +41,12 @@ public class TimedQueue extends ScriptQueue {
 
     public DelayTracker delay;
 
+    /**
+     * The relative share of the tick budget this queue receives, when a budget is set (see ScriptEngine.tickBudgetMillis).
+     * A queue with weight 2 may run for twice as long per tick as a queue with weight 1.
+     */
+    public int timeSliceWeight = 1;
+
     public void delayFor(DurationTag duration) {
         delay = new DeltaTimeDelayTracker(duration.getMillis());
     }
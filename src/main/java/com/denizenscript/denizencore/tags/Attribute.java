@@ -10,6 +10,7 @@ import com.denizenscript.denizencore.utilities.DefinitionProvider;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Attribute {
 
@@ -43,7 +44,7 @@ public class Attribute {
         }
     }
 
-    private static HashMap<String, AttributeComponent[]> attribsLookup = new HashMap<>();
+    private static Map<String, AttributeComponent[]> attribsLookup = new ConcurrentHashMap<>();
 
     private static boolean isNumber(char c) {
         return c >= '0' && c <= '9';
@@ -7,7 +7,8 @@ import com.denizenscript.denizencore.objects.core.ScriptTag;
 import com.denizenscript.denizencore.scripts.ScriptEntry;
 import com.denizenscript.denizencore.utilities.debugging.Debug;
 
-import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ReplaceableTagEvent {
 
@@ -53,7 +54,7 @@ public class ReplaceableTagEvent {
 
     public ReferenceData mainRef = null;
 
-    public static HashMap<String, ReferenceData> refs = new HashMap<>();
+    public static Map<String, ReferenceData> refs = new ConcurrentHashMap<>();
 
     public ReplaceableTagEvent(ReferenceData ref, String tag, TagContext context) {
         // Reference context
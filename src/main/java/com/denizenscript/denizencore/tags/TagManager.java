@@ -4,6 +4,7 @@ import com.denizenscript.denizencore.exceptions.TagProcessingException;
 import com.denizenscript.denizencore.objects.*;
 import com.denizenscript.denizencore.objects.core.ElementTag;
 import com.denizenscript.denizencore.scripts.ScriptEntry;
+import com.denizenscript.denizencore.scripts.commands.CommandExecutor;
 import com.denizenscript.denizencore.scripts.queues.ScriptQueue;
 import com.denizenscript.denizencore.tags.core.*;
 import com.denizenscript.denizencore.utilities.CoreUtilities;
@@ -11,9 +12,9 @@ import com.denizenscript.denizencore.utilities.debugging.Debug;
 import com.denizenscript.denizencore.DenizenCore;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.*;
 import java.util.regex.Pattern;
 
@@ -40,11 +41,11 @@ public class TagManager {
         new UtilTagBase();
     }
 
-    public static HashMap<String, TagRunnable.RootForm> rootFormHandlers = new HashMap<>();
+    public static Map<String, TagRunnable.RootForm> rootFormHandlers = new ConcurrentHashMap<>();
 
-    public static HashMap<String, TagRunnable.BaseInterface> baseHandlers = new HashMap<>();
+    public static Map<String, TagRunnable.BaseInterface> baseHandlers = new ConcurrentHashMap<>();
 
-    public static HashSet<String> properTagBases = new HashSet<>();
+    public static Set<String> properTagBases = ConcurrentHashMap.newKeySet();
 
     public static void registerTagHandler(String name, TagRunnable.BaseInterface run) {
         properTagBases.add(name);
@@ -114,25 +115,41 @@ public class TagManager {
         }
     }
 
+    private static final ThreadLocal<Boolean> inTag = ThreadLocal.withInitial(() -> false);
+
+    /**
+     * Whether any thread is filling a tag under the tag timeout.
+     * Deprecated: this is shared between all threads, so use isInTag() instead. Kept up to date for plugins built against older versions.
+     */
+    @Deprecated
     public static boolean isInTag = false;
 
+    /**
+     * Returns whether the calling thread is currently in the middle of filling a tag.
+     */
+    public static boolean isInTag() {
+        return inTag.get();
+    }
+
     public static void executeWithTimeLimit(final ReplaceableTagEvent event, int seconds) {
 
         ExecutorService executor = Executors.newFixedThreadPool(4);
 
+        // The tag is filled on a worker thread, which should still see the queue it's being filled for.
+        final ScriptQueue queue = CommandExecutor.getCurrentQueue();
+
         Future<?> future = executor.submit(() -> {
+            CommandExecutor.setCurrentQueue(queue);
             try {
                 DenizenCore.getImplementation().preTagExecute();
-                if (isInTag) {
-                    fireEvent(event);
-                }
-                else {
-                    isInTag = true;
-                    fireEvent(event);
-                    isInTag = false;
-                }
+                inTag.set(true);
+                isInTag = true;
+                fireEvent(event);
             }
             finally {
+                inTag.set(false);
+                isInTag = false;
+                CommandExecutor.setCurrentQueue(null);
                 DenizenCore.getImplementation().postTagExecute();
             }
         });
@@ -179,7 +196,7 @@ public class TagManager {
         if (Debug.verbose) {
             Debug.log("Tag read: " + event.raw_tag + ", " + tT + "...");
         }
-        if (tT <= 0 || isInTag || (!DenizenCore.getImplementation().shouldDebug(context) && !DenizenCore.getImplementation().tagTimeoutWhenSilent())) {
+        if (tT <= 0 || inTag.get() || (!DenizenCore.getImplementation().shouldDebug(context) && !DenizenCore.getImplementation().tagTimeoutWhenSilent())) {
             fireEvent(event);
         }
         else {
@@ -226,7 +243,7 @@ public class TagManager {
 
     public static Pattern OBJECTTAG_CONFUSION_PATTERN = Pattern.compile("<\\w+tag[\\[.>].*", Pattern.CASE_INSENSITIVE);
 
-    static HashMap<String, List<ParseableTagPiece>> preCalced = new HashMap<>();
+    static Map<String, List<ParseableTagPiece>> preCalced = new ConcurrentHashMap<>();
 
     public static class ParseableTagPiece {
 
@@ -775,21 +775,24 @@ public class CoreUtilities {
         return new String(output);
     }
 
+    public static Charset getFileSaveCharset() {
+        return ScriptHelper.encoding == null ? Charset.defaultCharset() : ScriptHelper.encoding.charset();
+    }
+
     public static void journallingFileSave(String filePath, String contents) {
+        journallingFileSave(filePath, contents.getBytes(getFileSaveCharset()));
+    }
+
+    /**
+     * Saves the file, returning whether it succeeded (after showing an error if not).
+     */
+    public static boolean journallingFileSave(String filePath, byte[] contents) {
         File saveToFile = new File(filePath + "~1");
         try {
             saveToFile.getParentFile().mkdirs();
-            Charset charset = ScriptHelper.encoding == null ? null : ScriptHelper.encoding.charset();
             FileOutputStream fiout = new FileOutputStream(saveToFile);
-            OutputStreamWriter writer;
-            if (charset == null) {
-                writer = new OutputStreamWriter(fiout);
-            }
-            else {
-                writer = new OutputStreamWriter(fiout, charset);
-            }
-            writer.write(contents);
-            writer.close();
+            fiout.write(contents);
+            fiout.close();
             File bakFile = new File(filePath + "~2");
             File realFile = new File(filePath);
             if (realFile.exists()) {
@@ -799,29 +802,59 @@ public class CoreUtilities {
             if (bakFile.exists()) {
                 bakFile.delete();
             }
+            return true;
         }
         catch (Throwable ex) {
             Debug.echoError("Failed to save data to path '" + filePath + "'");
             Debug.echoError(ex);
+            return false;
+        }
+    }
+
+    /**
+     * Returns the file that journallingLoadFile would read for a path, or null if there is none.
+     */
+    public static File getJournalledFile(String filePath) {
+        File flagFile = new File(filePath);
+        if (flagFile.exists()) {
+            return flagFile;
+        }
+        File bakFile = new File(filePath + "~2");
+        if (bakFile.exists()) {
+            return bakFile;
+        }
+        // Note: ~1 are likely corrupted, so ignore them.
+        return null;
+    }
+
+    /**
+     * Deletes a file saved by journallingFileSave, along with any leftover backup of it.
+     */
+    public static void journallingFileDelete(String filePath) {
+        new File(filePath).delete();
+        new File(filePath + "~2").delete();
+    }
+
+    public static byte[] journallingLoadBytes(String filePath) {
+        try {
+            File realPath = getJournalledFile(filePath);
+            if (realPath == null) {
+                return null;
+            }
+            return Files.readAllBytes(realPath.toPath());
+        }
+        catch (Throwable ex) {
+            Debug.echoError("Failed to load data for path '" + filePath + "'");
+            Debug.echoError(ex);
+            return null;
         }
     }
 
     public static String journallingLoadFile(String filePath) {
         try {
-            File realPath;
-            File flagFile = new File(filePath);
-            if (flagFile.exists()) {
-                realPath = flagFile;
-            }
-            else {
-                File bakFile = new File(filePath + "~2");
-                if (bakFile.exists()) {
-                    realPath = bakFile;
-                }
-                // Note: ~1 are likely corrupted, so ignore them.
-                else {
-                    return null;
-                }
+            File realPath = getJournalledFile(filePath);
+            if (realPath == null) {
+                return null;
             }
             FileInputStream fis = new FileInputStream(realPath);
             String str = ScriptHelper.convertStreamToString(fis);
@@ -62,7 +62,7 @@ public class YamlConfiguration {
         for (Object o : new HashSet<Object>(objs.keySet())) {
             Object got = objs.get(o);
             objs.remove(o);
-            objs.put(o == null ? null : new StringHolder(o.toString()), got);
+            objs.put(o == null ? null : StringHolder.intern(o.toString()), got);
         }
         for (Map.Entry<StringHolder, Object> str : objs.entrySet()) {
             if (str.getValue() instanceof Map) {
@@ -225,14 +225,14 @@ public class YamlConfiguration {
                     emptyEmptyMaps(parts);
                 }
                 else {
-                    portion.put(new StringHolder(parts.get(i)), o);
+                    portion.put(StringHolder.intern(parts.get(i)), o);
                 }
                 dirty = true;
                 return;
             }
             else if (oPortion == null) {
                 Map<StringHolder, Object> map = new HashMap<>();
-                portion.put(new StringHolder(parts.get(i)), map);
+                portion.put(StringHolder.intern(parts.get(i)), map);
                 portion = map;
             }
             else if (oPortion instanceof Map) {
@@ -240,7 +240,7 @@ public class YamlConfiguration {
             }
             else {
                 Map<StringHolder, Object> map = new HashMap<>();
-                portion.put(new StringHolder(parts.get(i)), map);
+                portion.put(StringHolder.intern(parts.get(i)), map);
                 portion = map;
             }
         }
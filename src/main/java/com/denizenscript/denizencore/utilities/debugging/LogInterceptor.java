@@ -3,33 +3,124 @@ package com.denizenscript.denizencore.utilities.debugging;
 import com.denizenscript.denizencore.DenizenCore;
 import com.denizenscript.denizencore.events.core.ConsoleOutputScriptEvent;
 
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Intercepts system.out operations for the sake of blocking messages at request.
  * Disabled by default in config.yml
+ * When the console output event has scripts listening, printed text is held and passed through the event in batches on the main tick (see 'dispatchBufferedLines'),
+ * so that no script code runs on whatever thread did the printing.
  */
 public class LogInterceptor extends PrintStream {
     public boolean redirected = false;
     public PrintStream standardOut;
 
+    /**
+     * Maximum number of held lines to run through the event per tick, or 0 for no limit.
+     */
+    public static int maxLinesPerTick = 500;
+
+    /**
+     * Maximum number of lines to hold before flushing them and printing new ones directly without firing the event (eg if the main thread is stuck).
+     */
+    public static int maxBufferedLines = 10000;
+
+    public static class BufferedLine {
+
+        public String text;
+
+        public boolean newLine;
+
+        public BufferedLine(String text, boolean newLine) {
+            this.text = text;
+            this.newLine = newLine;
+        }
+    }
+
+    public final ConcurrentLinkedQueue<BufferedLine> buffer = new ConcurrentLinkedQueue<>();
+
+    public final AtomicInteger bufferSize = new AtomicInteger();
+
+    // Held while flushing, so that two threads flushing at once don't interleave held lines. Never held while the event runs.
+    public final Object bufferLock = new Object();
+
+    // The charset PrintStream uses to encode text for this stream (the platform default, as no other is given to the constructor).
+    public final Charset charset = Charset.defaultCharset();
+
+    public final byte[] lineSeparator = System.lineSeparator().getBytes(charset);
+
+    public Thread shutdownHook;
+
     public LogInterceptor() {
         super(System.out, true);
     }
 
-    @Override
-    public void print(String s) {
-        if (antiLoop) {
-            super.print(s);
+    public void intercept(String s, boolean newLine) {
+        if (antiLoop && Thread.currentThread() == DenizenCore.MAIN_THREAD) {
+            printDirect(s, newLine);
+            return;
+        }
+        if (ConsoleOutputScriptEvent.instance.eventPaths.isEmpty() || bufferSize.get() >= maxBufferedLines) {
+            if (!buffer.isEmpty()) {
+                flushBufferedLines();
+            }
+            printDirect(s, newLine);
+            return;
+        }
+        bufferSize.incrementAndGet();
+        buffer.add(new BufferedLine(s, newLine));
+    }
+
+    /**
+     * Prints text straight to the underlying stream. This writes to 'out' rather than through PrintStream's own methods, which would re-enter the overrides below.
+     */
+    public void printDirect(String s, boolean newLine) {
+        byte[] bytes = String.valueOf(s).getBytes(charset);
+        synchronized (this) {
+            try {
+                out.write(bytes);
+                if (newLine) {
+                    out.write(lineSeparator);
+                }
+                out.flush();
+            }
+            catch (IOException ex) {
+                setError();
+            }
+        }
+    }
+
+    /**
+     * Fires the console output event for held lines and prints those that were not cancelled. Called each tick by DenizenCore.
+     */
+    public void dispatchBufferedLines() {
+        if (buffer.isEmpty()) {
             return;
         }
         antiLoop = true;
         try {
-            ConsoleOutputScriptEvent event = ConsoleOutputScriptEvent.instance;
-            event.message = DenizenCore.getImplementation().cleanseLogString(s);
-            event = (ConsoleOutputScriptEvent) event.fire();
-            if (!event.cancelled) {
-                super.print(s);
+            int limit = maxLinesPerTick;
+            int count = 0;
+            while (limit <= 0 || count++ < limit) {
+                BufferedLine line;
+                synchronized (bufferLock) {
+                    line = buffer.poll();
+                }
+                if (line == null) {
+                    break;
+                }
+                bufferSize.decrementAndGet();
+                ConsoleOutputScriptEvent event = ConsoleOutputScriptEvent.instance;
+                event.message = DenizenCore.getImplementation().cleanseLogString(line.text);
+                event = (ConsoleOutputScriptEvent) event.fire();
+                if (!event.cancelled) {
+                    printDirect(line.text, line.newLine);
+                }
             }
         }
         finally {
@@ -37,6 +128,74 @@ public class LogInterceptor extends PrintStream {
         }
     }
 
+    /**
+     * Prints all held lines without firing the event.
+     */
+    public void flushBufferedLines() {
+        synchronized (bufferLock) {
+            BufferedLine line;
+            while ((line = buffer.poll()) != null) {
+                bufferSize.decrementAndGet();
+                printDirect(line.text, line.newLine);
+            }
+        }
+    }
+
+    // Every PrintStream text path below is routed through 'intercept', so that nothing can be printed ahead of held lines.
+    // None of these may lock on 'this' before intercepting, as flushing locks 'bufferLock' and then 'this'.
+    // Raw byte writes are passed through unchanged (they may hold partial characters), after printing any held lines so that order is kept.
+
+    @Override
+    public void write(int b) {
+        if (!buffer.isEmpty()) {
+            flushBufferedLines();
+        }
+        super.write(b);
+    }
+
+    @Override
+    public void write(byte[] buf, int off, int len) {
+        if (!buffer.isEmpty()) {
+            flushBufferedLines();
+        }
+        super.write(buf, off, len);
+    }
+
+    @Override
+    public void print(boolean b) {
+        print(String.valueOf(b));
+    }
+
+    @Override
+    public void print(char c) {
+        print(String.valueOf(c));
+    }
+
+    @Override
+    public void print(int i) {
+        print(String.valueOf(i));
+    }
+
+    @Override
+    public void print(long l) {
+        print(String.valueOf(l));
+    }
+
+    @Override
+    public void print(float f) {
+        print(String.valueOf(f));
+    }
+
+    @Override
+    public void print(double d) {
+        print(String.valueOf(d));
+    }
+
+    @Override
+    public void print(String s) {
+        intercept(s, false);
+    }
+
     @Override
     public void print(Object obj) {
         print(String.valueOf(obj));
@@ -47,6 +206,97 @@ public class LogInterceptor extends PrintStream {
         print(new String(buf));
     }
 
+    @Override
+    public void println() {
+        intercept("", true);
+    }
+
+    @Override
+    public void println(boolean b) {
+        println(String.valueOf(b));
+    }
+
+    @Override
+    public void println(char c) {
+        println(String.valueOf(c));
+    }
+
+    @Override
+    public void println(int i) {
+        println(String.valueOf(i));
+    }
+
+    @Override
+    public void println(long l) {
+        println(String.valueOf(l));
+    }
+
+    @Override
+    public void println(float f) {
+        println(String.valueOf(f));
+    }
+
+    @Override
+    public void println(double d) {
+        println(String.valueOf(d));
+    }
+
+    @Override
+    public void println(String s) {
+        intercept(s, true);
+    }
+
+    @Override
+    public void println(Object obj) {
+        println(String.valueOf(obj));
+    }
+
+    @Override
+    public void println(char[] buf) {
+        println(new String(buf));
+    }
+
+    @Override
+    public PrintStream printf(String format, Object... args) {
+        return format(format, args);
+    }
+
+    @Override
+    public PrintStream printf(Locale l, String format, Object... args) {
+        return format(l, format, args);
+    }
+
+    @Override
+    public PrintStream format(String format, Object... args) {
+        print(String.format(format, args));
+        return this;
+    }
+
+    @Override
+    public PrintStream format(Locale l, String format, Object... args) {
+        print(String.format(l, format, args));
+        return this;
+    }
+
+    @Override
+    public PrintStream append(CharSequence csq) {
+        print(String.valueOf(csq));
+        return this;
+    }
+
+    @Override
+    public PrintStream append(CharSequence csq, int start, int end) {
+        print(String.valueOf(csq == null ? "null" : csq).substring(start, end));
+        return this;
+    }
+
+    @Override
+    public PrintStream append(char c) {
+        print(c);
+        return this;
+    }
+
+    // True while the main thread is running the console output event, so that anything it prints goes straight out.
     public boolean antiLoop = false;
 
     public void redirectOutput() {
@@ -58,6 +308,10 @@ public class LogInterceptor extends PrintStream {
             standardOut = System.out;
         }
         System.setOut(this);
+        if (shutdownHook == null) {
+            shutdownHook = new Thread(this::flushBufferedLines, "Denizen LogInterceptor flush");
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        }
     }
 
     public void standardOutput() {
@@ -66,5 +320,6 @@ public class LogInterceptor extends PrintStream {
         }
         redirected = false;
         System.setOut(standardOut);
+        flushBufferedLines();
     }
 }
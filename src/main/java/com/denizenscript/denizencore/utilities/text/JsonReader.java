@@ -0,0 +1,353 @@
+package com.denizenscript.denizencore.utilities.text;
+
+import com.denizenscript.denizencore.objects.ObjectFetcher;
+import com.denizenscript.denizencore.objects.ObjectTag;
+import com.denizenscript.denizencore.objects.core.ElementTag;
+import com.denizenscript.denizencore.objects.core.ListTag;
+import com.denizenscript.denizencore.objects.core.MapTag;
+import com.denizenscript.denizencore.tags.TagContext;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Parses JSON from a String or Reader directly into MapTags, ListTags and ElementTags, without building an intermediate JSON object tree.
+ * Objects become MapTags and arrays become ListTags. Strings are picked as objects (as values loaded from YAML are).
+ * Numbers keep their text exactly as written, and true/false/null become the elements "true", "false" and "null".
+ */
+public class JsonReader {
+
+    /**
+     * Maximum depth of nested objects and arrays, to avoid overflowing the stack on hostile input.
+     */
+    public static int maxDepth = 512;
+
+    public final Reader source;
+
+    public final TagContext context;
+
+    private char[] buffer;
+
+    private int position;
+
+    private int limit;
+
+    // Characters read from the source before the current buffer, for error positions.
+    private long consumed;
+
+    private final StringBuilder text = new StringBuilder();
+
+    public JsonReader(Reader source, TagContext context) {
+        this.source = source;
+        this.context = context;
+        buffer = new char[8192];
+    }
+
+    public JsonReader(String json, TagContext context) {
+        this.source = null;
+        this.context = context;
+        buffer = json.toCharArray();
+        limit = buffer.length;
+    }
+
+    /**
+     * Parses a single JSON value, which must be the whole input (other than whitespace).
+     */
+    public static ObjectTag parse(String json, TagContext context) throws IOException {
+        return new JsonReader(json, context).readDocument();
+    }
+
+    public ObjectTag readDocument() throws IOException {
+        ObjectTag result = readValue(0, false);
+        if (skipWhitespace() != -1) {
+            throw error("Unexpected content after the end of the JSON value");
+        }
+        return result;
+    }
+
+    private boolean fill() throws IOException {
+        if (source == null) {
+            return false;
+        }
+        consumed += limit;
+        position = 0;
+        limit = 0;
+        int read = source.read(buffer, 0, buffer.length);
+        while (read == 0) {
+            read = source.read(buffer, 0, buffer.length);
+        }
+        if (read < 0) {
+            return false;
+        }
+        limit = read;
+        return true;
+    }
+
+    private IOException error(String message) {
+        return new IOException(message + " (at character " + (consumed + position) + ")");
+    }
+
+    private int skipWhitespace() throws IOException {
+        while (true) {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            char c = buffer[position];
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                position++;
+            }
+            else {
+                return c;
+            }
+        }
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        int c = skipWhitespace();
+        if (c != -1) {
+            position++;
+        }
+        return c;
+    }
+
+    private ObjectTag readValue(int depth, boolean lazy) throws IOException {
+        int c = nextNonWhitespace();
+        switch (c) {
+            case -1:
+                throw error("Unexpected end of JSON input");
+            case '{':
+                return readObject(depth + 1);
+            case '[':
+                return readArray(depth + 1);
+            case '"': {
+                String value = readString();
+                return lazy ? ObjectFetcher.pickObjectLazy(value, context) : ObjectFetcher.pickObjectFor(value, context);
+            }
+            case 't':
+                expectWord("rue");
+                return new ElementTag("true");
+            case 'f':
+                expectWord("alse");
+                return new ElementTag("false");
+            case 'n':
+                expectWord("ull");
+                return new ElementTag("null");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    return new ElementTag(readNumber((char) c));
+                }
+                position--;
+                throw error("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private MapTag readObject(int depth) throws IOException {
+        if (depth > maxDepth) {
+            throw error("JSON is nested too deeply");
+        }
+        MapTag result = new MapTag();
+        if (skipWhitespace() == '}') {
+            position++;
+            return result;
+        }
+        while (true) {
+            if (nextNonWhitespace() != '"') {
+                throw error("Expected a quoted key");
+            }
+            String key = readString();
+            if (nextNonWhitespace() != ':') {
+                throw error("Expected ':' after key");
+            }
+            result.map.put(StringHolder.intern(key), readValue(depth, true));
+            int c = nextNonWhitespace();
+            if (c == '}') {
+                return result;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or '}'");
+            }
+        }
+    }
+
+    private ListTag readArray(int depth) throws IOException {
+        if (depth > maxDepth) {
+            throw error("JSON is nested too deeply");
+        }
+        ListTag result = new ListTag();
+        if (skipWhitespace() == ']') {
+            position++;
+            return result;
+        }
+        while (true) {
+            result.objectForms.add(readValue(depth, true));
+            int c = nextNonWhitespace();
+            if (c == ']') {
+                return result;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or ']'");
+            }
+        }
+    }
+
+    private void expectWord(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (position == limit && !fill()) {
+                throw error("Unexpected end of JSON input");
+            }
+            if (buffer[position++] != rest.charAt(i)) {
+                throw error("Unexpected literal");
+            }
+        }
+    }
+
+    private String readNumber(char first) throws IOException {
+        StringBuilder text = this.text;
+        text.setLength(0);
+        text.append(first);
+        while (true) {
+            if (position == limit && !fill()) {
+                break;
+            }
+            char c = buffer[position];
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+                text.append(c);
+                position++;
+            }
+            else {
+                break;
+            }
+        }
+        String number = text.toString();
+        if (!isValidNumber(number)) {
+            throw error("Invalid number '" + number + "'");
+        }
+        return number;
+    }
+
+    /**
+     * Returns whether the text matches the JSON number grammar: an optional '-', then '0' or digits not starting with '0',
+     * then optionally a '.' and at least one digit, then optionally an 'e' or 'E', an optional sign, and at least one digit.
+     */
+    public static boolean isValidNumber(String number) {
+        int len = number.length();
+        int i = 0;
+        if (i < len && number.charAt(i) == '-') {
+            i++;
+        }
+        if (i < len && number.charAt(i) == '0') {
+            i++;
+        }
+        else {
+            int start = i;
+            i = skipDigits(number, i);
+            if (i == start) {
+                return false;
+            }
+        }
+        if (i < len && number.charAt(i) == '.') {
+            int start = ++i;
+            i = skipDigits(number, i);
+            if (i == start) {
+                return false;
+            }
+        }
+        if (i < len && (number.charAt(i) == 'e' || number.charAt(i) == 'E')) {
+            i++;
+            if (i < len && (number.charAt(i) == '+' || number.charAt(i) == '-')) {
+                i++;
+            }
+            int start = i;
+            i = skipDigits(number, i);
+            if (i == start) {
+                return false;
+            }
+        }
+        return i == len;
+    }
+
+    private static int skipDigits(String text, int i) {
+        while (i < text.length() && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    private String readString() throws IOException {
+        // Fast path: the whole string is in the buffer with no escapes.
+        for (int i = position; i < limit; i++) {
+            char c = buffer[i];
+            if (c == '"') {
+                String result = new String(buffer, position, i - position);
+                position = i + 1;
+                return result;
+            }
+            if (c == '\\') {
+                break;
+            }
+        }
+        StringBuilder text = this.text;
+        text.setLength(0);
+        while (true) {
+            if (position == limit && !fill()) {
+                throw error("Unterminated string");
+            }
+            int start = position;
+            while (position < limit) {
+                char c = buffer[position];
+                if (c == '"' || c == '\\') {
+                    break;
+                }
+                position++;
+            }
+            text.append(buffer, start, position - start);
+            if (position == limit) {
+                continue;
+            }
+            char c = buffer[position++];
+            if (c == '"') {
+                return text.toString();
+            }
+            text.append(readEscape());
+        }
+    }
+
+    private char readEscape() throws IOException {
+        if (position == limit && !fill()) {
+            throw error("Unterminated string");
+        }
+        char c = buffer[position++];
+        switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                return c;
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'u': {
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    if (position == limit && !fill()) {
+                        throw error("Unterminated string");
+                    }
+                    int digit = Character.digit(buffer[position++], 16);
+                    if (digit == -1) {
+                        throw error("Invalid unicode escape");
+                    }
+                    value = (value << 4) | digit;
+                }
+                return (char) value;
+            }
+            default:
+                throw error("Invalid escape '\\" + c + "'");
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.denizenscript.denizencore.utilities.text;
+
+import com.denizenscript.denizencore.objects.ObjectTag;
+import com.denizenscript.denizencore.objects.core.ListTag;
+import com.denizenscript.denizencore.objects.core.MapTag;
+import com.denizenscript.denizencore.scripts.ScriptBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes JSON directly to a StringBuilder or Writer (any Appendable), walking MapTags and ListTags without building an intermediate JSON object tree.
+ * Maps become JSON objects (in the map's order), lists become arrays, and any other object becomes a string of its toString().
+ */
+public class JsonWriter {
+
+    public final Appendable output;
+
+    public JsonWriter(Appendable output) {
+        this.output = output;
+    }
+
+    public static String toJson(ObjectTag object) {
+        StringBuilder builder = new StringBuilder();
+        try {
+            new JsonWriter(builder).writeTag(object);
+        }
+        catch (IOException ex) {
+            // StringBuilder does not throw.
+            throw new UncheckedIOException(ex);
+        }
+        return builder.toString();
+    }
+
+    public static String yamlToJson(Map<?, ?> map, boolean patchLines, String skipKey) {
+        StringBuilder builder = new StringBuilder();
+        try {
+            new JsonWriter(builder).writeYaml(map, patchLines, skipKey);
+        }
+        catch (IOException ex) {
+            // StringBuilder does not throw.
+            throw new UncheckedIOException(ex);
+        }
+        return builder.toString();
+    }
+
+    public void writeTag(ObjectTag object) throws IOException {
+        if (object == null) {
+            output.append("null");
+        }
+        else if (object instanceof MapTag) {
+            output.append('{');
+            boolean first = true;
+            for (Map.Entry<StringHolder, ObjectTag> entry : ((MapTag) object).map.entrySet()) {
+                if (entry.getValue() == null) {
+                    continue;
+                }
+                if (!first) {
+                    output.append(',');
+                }
+                first = false;
+                writeString(entry.getKey().str);
+                output.append(':');
+                writeTag(entry.getValue());
+            }
+            output.append('}');
+        }
+        else if (object instanceof ListTag) {
+            output.append('[');
+            boolean first = true;
+            for (ObjectTag entry : ((ListTag) object).objectForms) {
+                if (!first) {
+                    output.append(',');
+                }
+                first = false;
+                writeTag(entry);
+            }
+            output.append(']');
+        }
+        else {
+            writeString(object.toString());
+        }
+    }
+
+    /**
+     * Writes a loaded YAML section (such as a script container's contents) in the same form as YamlConfiguration.reverse would give it.
+     * Null values and null list entries are left out, and with 'patchLines' list entries have script line prefixes stripped.
+     */
+    public void writeYaml(Map<?, ?> map, boolean patchLines, String skipKey) throws IOException {
+        output.append('{');
+        boolean first = true;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            Object value = entry.getValue();
+            String key = String.valueOf(entry.getKey());
+            if (value == null || key.equals(skipKey)) {
+                continue;
+            }
+            if (!first) {
+                output.append(',');
+            }
+            first = false;
+            writeString(key);
+            output.append(':');
+            if (value instanceof Map) {
+                writeYaml((Map<?, ?>) value, patchLines, null);
+            }
+            else if (value instanceof List) {
+                output.append('[');
+                boolean firstEntry = true;
+                for (Object listEntry : (List<?>) value) {
+                    if (listEntry == null) {
+                        continue;
+                    }
+                    if (!firstEntry) {
+                        output.append(',');
+                    }
+                    firstEntry = false;
+                    if (listEntry instanceof Map) {
+                        writeYaml((Map<?, ?>) listEntry, patchLines, null);
+                    }
+                    else {
+                        writeString(patchLines ? ScriptBuilder.stripLinePrefix(listEntry.toString()) : listEntry.toString());
+                    }
+                }
+                output.append(']');
+            }
+            else {
+                writeScalar(value);
+            }
+        }
+        output.append('}');
+    }
+
+    public void writeScalar(Object value) throws IOException {
+        if (value instanceof Boolean) {
+            output.append(value.toString());
+        }
+        else if (value instanceof Number && isFinite((Number) value)) {
+            String number = value.toString();
+            // Match org.json's number output: no trailing zeros after a decimal point.
+            if (number.indexOf('.') > 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0) {
+                int end = number.length();
+                while (number.charAt(end - 1) == '0') {
+                    end--;
+                }
+                if (number.charAt(end - 1) == '.') {
+                    end--;
+                }
+                number = number.substring(0, end);
+            }
+            output.append(number);
+        }
+        else {
+            writeString(value.toString());
+        }
+    }
+
+    private static boolean isFinite(Number number) {
+        if (number instanceof Double || number instanceof Float) {
+            double value = number.doubleValue();
+            return !Double.isNaN(value) && !Double.isInfinite(value);
+        }
+        return true;
+    }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Writes a quoted, escaped JSON string, escaping the same characters org.json does.
+     */
+    public void writeString(String text) throws IOException {
+        Appendable output = this.output;
+        output.append('"');
+        int length = text.length();
+        int start = 0;
+        char previous = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            String escape = null;
+            switch (c) {
+                case '"':
+                    escape = "\\\"";
+                    break;
+                case '\\':
+                    escape = "\\\\";
+                    break;
+                case '/':
+                    if (previous == '<') {
+                        escape = "\\/";
+                    }
+                    break;
+                case '\b':
+                    escape = "\\b";
+                    break;
+                case '\t':
+                    escape = "\\t";
+                    break;
+                case '\n':
+                    escape = "\\n";
+                    break;
+                case '\f':
+                    escape = "\\f";
+                    break;
+                case '\r':
+                    escape = "\\r";
+                    break;
+                default:
+                    if (c < ' ' || (c >= '\u0080' && c < '\u00a0') || (c >= '\u2000' && c < '\u2100')) {
+                        escape = new String(new char[] { '\\', 'u', HEX[c >> 12], HEX[(c >> 8) & 15], HEX[(c >> 4) & 15], HEX[c & 15] });
+                    }
+            }
+            previous = c;
+            if (escape != null) {
+                output.append(text, start, i).append(escape);
+                start = i + 1;
+            }
+        }
+        output.append(text, start, length).append('"');
+    }
+}
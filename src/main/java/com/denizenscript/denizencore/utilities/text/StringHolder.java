@@ -2,15 +2,61 @@ package com.denizenscript.denizencore.utilities.text;
 
 import com.denizenscript.denizencore.utilities.CoreUtilities;
 
+import java.lang.ref.WeakReference;
+import java.util.WeakHashMap;
+
 public class StringHolder {
 
+    /**
+     * Weakly held shared instances for intern(), split into separately locked segments so threads rarely wait on each other.
+     * Keyed by the exact (case-sensitive) text, which each StringHolder keeps alive through its 'str' field.
+     */
+    private static final InternSegment[] internSegments = new InternSegment[16];
+
+    private static final class InternSegment extends WeakHashMap<String, WeakReference<StringHolder>> {
+    }
+
+    static {
+        for (int i = 0; i < internSegments.length; i++) {
+            internSegments[i] = new InternSegment();
+        }
+    }
+
+    /**
+     * Returns a shared StringHolder for the given text, so keys stored in many maps (flag names, '__value', YAML keys, ...) use one instance.
+     * Use for keys that get stored, not for one-off lookups.
+     */
+    public static StringHolder intern(String str) {
+        int hash = str.hashCode();
+        InternSegment segment = internSegments[(hash ^ (hash >>> 16)) & (internSegments.length - 1)];
+        synchronized (segment) {
+            WeakReference<StringHolder> ref = segment.get(str);
+            StringHolder holder = ref == null ? null : ref.get();
+            if (holder == null) {
+                holder = new StringHolder(str);
+                segment.put(holder.str, new WeakReference<>(holder));
+            }
+            return holder;
+        }
+    }
+
     public final String str;
 
     public final String low;
 
     public StringHolder(String _str) {
         str = _str;
-        low = CoreUtilities.toLowerCase(_str);
+        low = hasUppercase(_str) ? CoreUtilities.toLowerCase(_str) : _str;
+    }
+
+    private static boolean hasUppercase(String str) {
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
@@ -20,6 +66,9 @@ public class StringHolder {
 
     @Override
     public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
         if (obj instanceof String) {
             return CoreUtilities.equalsIgnoreCase(low, (String) obj);
         }